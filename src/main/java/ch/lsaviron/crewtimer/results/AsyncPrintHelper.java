@@ -0,0 +1,201 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Print helper running another one (typically a slow one, e.g. writing a
+ * workbook) on its own thread, fed through a bounded queue. The calls only
+ * wait when the queue is full.
+ * <p>
+ * The sub-results are those of the other helper, their {@link SubResult#init()}
+ * and {@link SubResult#end()} being run on its thread too. {@link #close()}
+ * waits for all the calls to be done.
+ * <p>
+ * After a failure of the other helper, including an {@link Error} such as an
+ * {@link OutOfMemoryError} of a workbook, the thread keeps taking the calls
+ * without running them, so that the callers never wait on it forever: the
+ * failure is thrown by the next call or by {@link #close()}.
+ *
+ * @author Jean-David Maillefer
+ */
+final class AsyncPrintHelper implements PrintHelper, AutoCloseable {
+
+	static final int QUEUE_CAPACITY = 1024;
+
+	/** Stops the thread. */
+	private static final Consumer<PrintHelper> STOP = h -> {
+		// marker only
+	};
+
+	private final PrintHelper printHelper;
+
+	private final BlockingQueue<Consumer<PrintHelper>> calls = new ArrayBlockingQueue<>(
+			QUEUE_CAPACITY);
+
+	private final Thread thread;
+
+	/** First failure of the other helper, the next calls being ignored. */
+	private volatile Throwable failure;
+
+	AsyncPrintHelper(final PrintHelper printHelper, final String name) {
+		this.printHelper = printHelper;
+		thread = Thread.ofPlatform().name(name).start(this::run);
+	}
+
+	private void run() {
+		try {
+			while (true) {
+				final Consumer<PrintHelper> call = calls.take();
+				if (call == STOP) {
+					return;
+				}
+				if (failure == null) {
+					try {
+						call.accept(printHelper);
+					} catch (final Throwable e) {
+						failure = e;
+					}
+				}
+			}
+		} catch (final InterruptedException e) {
+			// only interrupted by close()
+		}
+	}
+
+	private void submit(final Consumer<PrintHelper> call) {
+		// fail fast
+		throwFailure();
+		try {
+			calls.put(call);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	public void printRaceHeader(final String header, final List<String> legs) {
+		submit(h -> h.printRaceHeader(header, legs));
+	}
+
+	@Override
+	public void printResultRow(final int categoryRank, final String medals,
+			final String crewAbbrev, final String crew, final String adjTime,
+			final int deltaMillis, final List<String> splits) {
+		submit(h -> h.printResultRow(categoryRank,
+				medals,
+				crewAbbrev,
+				crew,
+				adjTime,
+				deltaMillis,
+				splits));
+	}
+
+	@Override
+	public void printResultRow(final short rowHeight, final int categoryRank,
+			final String medals, final String crewAbbrev, final String crew,
+			final String adjTime, final int deltaMillis,
+			final List<String> splits) {
+		submit(h -> h.printResultRow(rowHeight,
+				categoryRank,
+				medals,
+				crewAbbrev,
+				crew,
+				adjTime,
+				deltaMillis,
+				splits));
+	}
+
+	/**
+	 * Measured on the calling thread, the other helper being thread-safe for
+	 * that.
+	 */
+	@Override
+	public short measureResultRow(final String crew) {
+		return printHelper.measureResultRow(crew);
+	}
+
+	@Override
+	public void printRaceFooter() {
+		submit(PrintHelper::printRaceFooter);
+	}
+
+	@Override
+	public void end() {
+		submit(PrintHelper::end);
+	}
+
+	@Override
+	public List<SubResult> getSubResults(final ResultTable results) {
+		return printHelper.getSubResults(results).stream()
+				.map(this::toAsync).toList();
+	}
+
+	@Override
+	public SubResult getLeaderboardSubResult(
+			final List<Leaderboard> leaderboards) {
+		return toAsync(printHelper.getLeaderboardSubResult(leaderboards));
+	}
+
+	private SubResult toAsync(final SubResult subResult) {
+		return new SubResult() {
+
+			@Override
+			public void init() {
+				submit(h -> subResult.init());
+			}
+
+			@Override
+			public void end() {
+				submit(h -> subResult.end());
+			}
+
+			@Override
+			public ResultTable getResults() {
+				return subResult.getResults();
+			}
+
+			@Override
+			public List<Leaderboard> getLeaderboards() {
+				return subResult.getLeaderboards();
+			}
+		};
+	}
+
+	/**
+	 * Waits for the calls submitted to be done.
+	 *
+	 * @throws RuntimeException
+	 *             the failure of the other helper, if any (wrapped in an
+	 *             {@link IllegalStateException} if not a
+	 *             {@link RuntimeException})
+	 */
+	@Override
+	public void close() {
+		try {
+			calls.put(STOP);
+			thread.join();
+		} catch (final InterruptedException e) {
+			thread.interrupt();
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+		throwFailure();
+	}
+
+	private void throwFailure() {
+		final Throwable e = failure;
+		if (e instanceof final RuntimeException runtimeException) {
+			throw runtimeException;
+		}
+		if (e != null) {
+			throw new IllegalStateException(
+					"Print helper " + thread.getName() + " failed",
+					e);
+		}
+	}
+
+}
@@ -1,8 +1,8 @@
 package ch.lsaviron.crewtimer.results;
 
-import java.util.Comparator;
-import java.util.Map;
+import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 class CategoryResult implements Comparable<CategoryResult>, Cloneable {
 
@@ -20,21 +20,57 @@ class CategoryResult implements Comparable<CategoryResult>, Cloneable {
 
 	final String start;
 
-	final Map<String, String> intermediateTimesByPoint;
+	/** Start time of day, {@link RaceTimes#NO_TIME} if none. */
+	final int startMillis;
+
+	/** Names of the intermediate timing points, shared by all the results. */
+	final List<String> intermediatePoints;
+
+	/**
+	 * Time since the start at each intermediate point,
+	 * {@link RaceTimes#NO_TIME} if none.
+	 */
+	final int[] intermediateMillis;
 
 	final String finish;
 
-	String delta;
+	/** Finish time of day, {@link RaceTimes#NO_TIME} if none. */
+	final int finishMillis;
+
+	/** Duration before penalties. */
+	final String rawTime;
+
+	final String penaltyCode;
+
+	/** Delta as read in CSV. */
+	final String delta;
+
+	/**
+	 * Delta to the first of the category, {@link RaceTimes#NO_TIME} if none.
+	 */
+	int deltaMillis;
 
 	Integer categoryRank;
 
 	final String adjTime;
 
+	/**
+	 * Adjusted duration, {@link RaceTimes#NO_TIME} if none (e.g. DNS, DNF).
+	 */
+	final int adjTimeMillis;
+
+	private final EventCategoryKey eventCategory;
+
+	/** Place in the event (nulls last), then finish (none last). */
+	private final long placeSortKey;
+
 	CategoryResult(final EventId event, final String eventName,
 			final Integer eventRank, final String crew, final String crewAbbrev,
 			final String category, final String start,
-			final Map<String, String> intermediateTimesByPoint,
-			final String finish, final String delta, final String adjTime) {
+			final List<String> intermediatePoints,
+			final int[] intermediateMillis, final String finish,
+			final String rawTime, final String penaltyCode, final String delta,
+			final String adjTime) {
 		this.event = event;
 		this.eventName = eventName;
 		this.eventRank = eventRank;
@@ -42,12 +78,22 @@ class CategoryResult implements Comparable<CategoryResult>, Cloneable {
 		this.crewAbbrev = crewAbbrev;
 		this.category = category;
 		this.start = start;
-		this.intermediateTimesByPoint = intermediateTimesByPoint;
+		this.intermediatePoints = intermediatePoints;
+		this.intermediateMillis = intermediateMillis;
 		this.finish = finish;
+		this.rawTime = rawTime;
+		this.penaltyCode = penaltyCode;
 		this.delta = delta;
 		this.adjTime = adjTime;
-
-		// fix adjTime after penalties
+		startMillis = RaceTimes.parseMillisOrNoTime(start);
+		finishMillis = RaceTimes.parseMillisOrNoTime(finish);
+		deltaMillis = RaceTimes.parseMillisOrNoTime(delta);
+		adjTimeMillis = RaceTimes.parseMillisOrNoTime(adjTime);
+		eventCategory = new EventCategoryKey(event, category);
+		placeSortKey = (long) (eventRank == null ? Integer.MAX_VALUE
+				: eventRank) << 32
+				| (finishMillis == RaceTimes.NO_TIME ? 0xFFFF_FFFFL
+						: finishMillis);
 	}
 
 	/**
@@ -58,26 +104,61 @@ class CategoryResult implements Comparable<CategoryResult>, Cloneable {
 	CategoryResult(final CategoryResult base) {
 		this(base.event, base.eventName, base.eventRank, base.crew,
 				base.crewAbbrev, base.category, base.start,
-				base.intermediateTimesByPoint, base.finish, base.delta,
-				base.adjTime);
+				base.intermediatePoints, base.intermediateMillis, base.finish,
+				base.rawTime, base.penaltyCode, base.delta, base.adjTime);
+		deltaMillis = base.deltaMillis;
 		categoryRank = base.categoryRank;
 	}
 
+	/**
+	 * @return a copy with another adjusted time (or status), ranks and delta
+	 *         being reset
+	 */
+	CategoryResult withAdjTime(final String adjTime) {
+		return new CategoryResult(event, eventName, eventRank, crew,
+				crewAbbrev, category, start, intermediatePoints,
+				intermediateMillis, finish, rawTime, penaltyCode, delta,
+				adjTime);
+	}
+
+	/**
+	 * @return a copy with other penalties and the adjusted time resulting
+	 *         from them, ranks and delta being reset
+	 */
+	CategoryResult withPenaltyCode(final String penaltyCode,
+			final String adjTime) {
+		return new CategoryResult(event, eventName, eventRank, crew,
+				crewAbbrev, category, start, intermediatePoints,
+				intermediateMillis, finish, rawTime, penaltyCode, delta,
+				adjTime);
+	}
+
+	/**
+	 * @return a copy with another rank in the event, ranks and delta being
+	 *         reset
+	 */
+	CategoryResult withEventRank(final Integer eventRank) {
+		return new CategoryResult(event, eventName, eventRank, crew,
+				crewAbbrev, category, start, intermediatePoints,
+				intermediateMillis, finish, rawTime, penaltyCode, delta,
+				adjTime);
+	}
+
+	/**
+	 * Orders by event, category, place in the event (none last), then finish
+	 * (none last).
+	 */
 	@Override
 	public int compareTo(final CategoryResult o) {
-		return Comparator
-				.<CategoryResult, EventId>comparing(cr -> cr.event,
-						EventId.COMPARATOR)
-				.thenComparing(cr -> cr.category)
-				.thenComparing(Comparator.comparing(cr -> cr.eventRank,
-						Comparator.nullsLast(Comparator.naturalOrder())))
-				.thenComparing(Comparator.comparing(cr -> cr.finish,
-						Comparator.nullsLast(Comparator.naturalOrder())))
-				.compare(this, o);
+		final int res = eventCategory.compareTo(o.eventCategory);
+		if (res != 0) {
+			return res;
+		}
+		return Long.compare(placeSortKey, o.placeSortKey);
 	}
 
 	EventCategoryKey getEventCategory() {
-		return new EventCategoryKey(event, category);
+		return eventCategory;
 	}
 
 	@Override
@@ -87,8 +168,9 @@ class CategoryResult implements Comparable<CategoryResult>, Cloneable {
 				+ ", crewAbbrev=" + crewAbbrev + ", category=" + category
 				+ ", start=" + start + ", finish=" + finish + ", delta=" + delta
 				+ ", categoryRank=" + categoryRank + ", adjTime=" + adjTime
-				+ intermediateTimesByPoint.entrySet().stream().map(
-						entry -> ", " + entry.getKey() + "=" + entry.getValue())
+				+ IntStream.range(0, intermediatePoints.size())
+						.mapToObj(i -> ", " + intermediatePoints.get(i) + "="
+								+ RaceTimes.formatSplit(intermediateMillis[i]))
 						.collect(Collectors.joining())
 				+ "]";
 	}
@@ -0,0 +1,100 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Base of the print helpers writing text lines (to the console), encoded in
+ * UTF-8. Each line is built in a reused {@link StringBuilder} then buffered,
+ * the buffer being flushed after each race and at the end.
+ *
+ * @author Jean-David Maillefer
+ */
+abstract class ConsolePrintHelper implements PrintHelper {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+
+	private final Writer out;
+
+	/** Line being built. */
+	final StringBuilder line = new StringBuilder(256);
+
+	ConsolePrintHelper(final OutputStream out) {
+		this.out = new BufferedWriter(
+				new OutputStreamWriter(out, StandardCharsets.UTF_8),
+				BUFFER_SIZE);
+	}
+
+	/**
+	 * Writes the line being built, then clears it.
+	 */
+	final void writeLine() {
+		line.append(LINE_SEPARATOR);
+		try {
+			out.append(line);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		line.setLength(0);
+	}
+
+	final void flush() {
+		try {
+			out.flush();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Same as {@link PrintHelper#formatAdjTime(String)}.
+	 */
+	final void appendAdjTime(final String adjTime) {
+		line.append(adjTime == null ? "(inconnu)" : adjTime);
+	}
+
+	/**
+	 * Same as {@link PrintHelper#formatDelta(int)}.
+	 */
+	final void appendDelta(final int deltaMillis) {
+		if (deltaMillis != RaceTimes.NO_TIME) {
+			RaceTimes.appendDelta(line.append('+'), deltaMillis);
+		}
+	}
+
+	/**
+	 * Same as {@link PrintHelper#formatExtraColumns(List)}.
+	 */
+	final void appendExtraColumns(final List<String> values) {
+		for (int i = 0; i < values.size(); i++) {
+			line.append('\t').append(values.get(i));
+		}
+	}
+
+	@Override
+	public void printRaceFooter() {
+		writeLine();
+		flush();
+	}
+
+	@Override
+	public void end() {
+		flush();
+	}
+
+	@Override
+	public List<SubResult> getSubResults(final ResultTable results) {
+		return Collections
+				.<SubResult>singletonList(new SimpleSubResult(results));
+	}
+
+}
@@ -0,0 +1,138 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Engines available to read the CrewTimer results CSV. All engines must
+ * produce the same rows for the same file.
+ *
+ * @author Jean-David Maillefer
+ */
+enum CsvEngine {
+
+	/**
+	 * Reads the file with Apache Commons CSV, all fields being materialized as
+	 * strings.
+	 */
+	COMMONS_CSV {
+
+		@Override
+		void read(final String file, final RowHandler headerHandler,
+				final RowHandler handler) throws IOException {
+			try (final Reader in = new FileReader(file)) {
+				read(in, headerHandler, handler);
+			}
+		}
+
+		@Override
+		void read(final byte[] content, final RowHandler headerHandler,
+				final RowHandler handler) throws IOException {
+			try (final Reader in = new InputStreamReader(
+					new ByteArrayInputStream(content),
+					StandardCharsets.UTF_8)) {
+				read(in, headerHandler, handler);
+			}
+		}
+
+		private void read(final Reader in, final RowHandler headerHandler,
+				final RowHandler handler) throws IOException {
+			// the header is read as a record, to detect the columns
+			final CSVFormat csvFormat = CSVFormat.DEFAULT.builder()
+					.setNullString("").get();
+			final CSVParser parser = csvFormat.parse(in);
+			boolean header = true;
+			for (final CSVRecord record : parser) {
+				(header ? headerHandler : handler).handle(new Row() {
+
+					@Override
+					public int size() {
+						return record.size();
+					}
+
+					@Override
+					public String get(final int index) {
+						return record.get(index);
+					}
+
+					@Override
+					public String toString() {
+						return record.toString();
+					}
+				});
+				header = false;
+			}
+		}
+
+	},
+	/**
+	 * Maps the file in memory and tokenizes the UTF-8 bytes directly. Only the
+	 * fields actually read are decoded into strings.
+	 */
+	MAPPED {
+
+		@Override
+		void read(final String file, final RowHandler headerHandler,
+				final RowHandler handler) throws IOException {
+			new MappedCsvReader(Path.of(file)).read(headerHandler, handler);
+		}
+
+		@Override
+		void read(final byte[] content, final RowHandler headerHandler,
+				final RowHandler handler) throws IOException {
+			new MappedCsvReader(null).read(ByteBuffer.wrap(content),
+					headerHandler,
+					handler);
+		}
+
+	};
+
+	/**
+	 * A CSV row. Instances may be reused between rows by the engine, so they
+	 * must not be kept after {@link RowHandler#handle(Row)} returns.
+	 */
+	interface Row {
+
+		int size();
+
+		/**
+		 * @return the field value or {@code null} if the field is empty
+		 */
+		String get(int index);
+	}
+
+	@FunctionalInterface
+	interface RowHandler {
+
+		void handle(Row row) throws IOException;
+	}
+
+	/**
+	 * Reads the header row of the given file, then all its data rows.
+	 *
+	 * @param headerHandler
+	 *            called with the header row, before the data rows
+	 */
+	abstract void read(String file, RowHandler headerHandler,
+			RowHandler handler) throws IOException;
+
+	/**
+	 * Reads the header row of the given UTF-8 content, then all its data rows.
+	 *
+	 * @param headerHandler
+	 *            called with the header row, before the data rows
+	 */
+	abstract void read(byte[] content, RowHandler headerHandler,
+			RowHandler handler) throws IOException;
+
+}
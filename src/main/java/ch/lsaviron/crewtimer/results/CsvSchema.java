@@ -0,0 +1,152 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ch.lsaviron.crewtimer.results.CsvEngine.Row;
+
+/**
+ * Columns of a CrewTimer results CSV, detected from its header row and compiled
+ * into indexes: one per {@link CsvResultHeaders} column, and one per
+ * intermediate timing point.
+ * <p>
+ * The intermediate timing points are the unknown columns between
+ * {@link CsvResultHeaders#Start} and {@link CsvResultHeaders#RawTime} (e.g.
+ * {@code Bouée_A}), in column order. Other unknown columns are ignored.
+ *
+ * @author Jean-David Maillefer
+ */
+final class CsvSchema {
+
+	/** UTF-8 byte order mark, added by some editors when saving a CSV. */
+	private static final char BOM = '\uFEFF';
+
+	private static final String QUOTE = "\"";
+
+	private final int nbColumns;
+
+	/** Index of each column, by {@link CsvResultHeaders#ordinal()}. */
+	private final int[] columnIndexes;
+
+	private final List<String> intermediatePoints;
+
+	private final int[] intermediatePointIndexes;
+
+	private CsvSchema(final int nbColumns, final int[] columnIndexes,
+			final List<String> intermediatePoints,
+			final int[] intermediatePointIndexes) {
+		this.nbColumns = nbColumns;
+		this.columnIndexes = columnIndexes;
+		this.intermediatePoints = intermediatePoints;
+		this.intermediatePointIndexes = intermediatePointIndexes;
+	}
+
+	/**
+	 * @throws IOException
+	 *             if a {@link CsvResultHeaders} column is missing
+	 */
+	static CsvSchema of(final Row header) throws IOException {
+		final CsvResultHeaders[] known = CsvResultHeaders.values();
+		final int[] columnIndexes = new int[known.length];
+		Arrays.fill(columnIndexes, -1);
+		final List<Integer> unknownIndexes = new ArrayList<>();
+		for (int index = 0; index < header.size(); index++) {
+			final String name = getName(header, index);
+			final CsvResultHeaders column = find(name);
+			if (column == null) {
+				unknownIndexes.add(index);
+			} else if (columnIndexes[column.ordinal()] == -1) {
+				columnIndexes[column.ordinal()] = index;
+			}
+		}
+		for (final CsvResultHeaders column : known) {
+			if (columnIndexes[column.ordinal()] == -1) {
+				throw new IOException(String.format(
+						"Column %s not found in CSV header %s",
+						column,
+						header));
+			}
+		}
+
+		final int start = columnIndexes[CsvResultHeaders.Start.ordinal()];
+		final int rawTime = columnIndexes[CsvResultHeaders.RawTime.ordinal()];
+		final int[] intermediatePointIndexes = unknownIndexes.stream()
+				.mapToInt(Integer::intValue)
+				.filter(index -> index > start && index < rawTime).toArray();
+		final List<String> intermediatePoints = Arrays
+				.stream(intermediatePointIndexes)
+				.mapToObj(index -> getName(header, index)).toList();
+		return new CsvSchema(header.size(), columnIndexes, intermediatePoints,
+				intermediatePointIndexes);
+	}
+
+	/**
+	 * @return the normalized name of a header column, without the byte order
+	 *         mark of a file re-saved with one (and then the quotes the
+	 *         engines keep, the mark coming before the opening quote)
+	 */
+	private static String getName(final Row header, final int index) {
+		String name = header.get(index);
+		if (index == 0 && name != null && !name.isEmpty()
+				&& name.charAt(0) == BOM) {
+			name = name.substring(1);
+			if (name.length() >= 2 && name.startsWith(QUOTE)
+					&& name.endsWith(QUOTE)) {
+				name = name.substring(1, name.length() - 1)
+						.replace(QUOTE + QUOTE, QUOTE);
+			}
+		}
+		return LSM.normalize(name);
+	}
+
+	private static CsvResultHeaders find(final String name) {
+		for (final CsvResultHeaders column : CsvResultHeaders.values()) {
+			if (column.name().equals(name)) {
+				return column;
+			}
+		}
+		return null;
+	}
+
+	int getNbColumns() {
+		return nbColumns;
+	}
+
+	/**
+	 * @return the names of the intermediate timing points, in column order
+	 */
+	List<String> getIntermediatePoints() {
+		return intermediatePoints;
+	}
+
+	/**
+	 * @return the normalized value of the column, {@code null} if empty
+	 */
+	String get(final Row row, final CsvResultHeaders column) {
+		return LSM.normalize(row.get(columnIndexes[column.ordinal()]));
+	}
+
+	/**
+	 * @return the integer value of the column, {@code null} if empty
+	 */
+	Integer getInteger(final Row row, final CsvResultHeaders column) {
+		final String value = row.get(columnIndexes[column.ordinal()]);
+		return value == null ? null : Integer.valueOf(value);
+	}
+
+	/**
+	 * @return the times since the start at the intermediate points,
+	 *         {@link RaceTimes#NO_TIME} if none
+	 */
+	int[] getIntermediateMillis(final Row row) {
+		final int[] res = new int[intermediatePointIndexes.length];
+		for (int i = 0; i < res.length; i++) {
+			res[i] = RaceTimes.parseMillisOrNoTime(
+					row.get(intermediatePointIndexes[i]));
+		}
+		return res;
+	}
+
+}
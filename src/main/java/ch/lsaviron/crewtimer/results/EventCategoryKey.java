@@ -1,18 +1,97 @@
 package ch.lsaviron.crewtimer.results;
 
-import java.util.Comparator;
+import java.util.Objects;
 
-record EventCategoryKey(EventId event, String category)
-		implements Comparable<EventCategoryKey> {
+import ch.lsaviron.lsm.LsmEventCategory;
+
+/**
+ * Key of the results of a category in an event, ordered by race, event id,
+ * then category name as written in the CSV (e.g. {@code M C1X*}). When both
+ * names are canonical, which is the usual case, the order is precomputed in a
+ * {@code long}, so that sorting and navigating maps only compare primitives.
+ */
+final class EventCategoryKey implements Comparable<EventCategoryKey> {
+
+	private final EventId event;
+
+	/** Category as written in the CSV, identifying the key. */
+	private final String rawCategory;
+
+	/** Canonical category (see {@link LsmEventCategory#parse(String)}). */
+	private final LsmEventCategory category;
+
+	/** Whether the raw category is the name of the canonical one. */
+	private final boolean canonicalName;
+
+	private final long sortKey;
+
+	EventCategoryKey(final EventId event, final String rawCategory) {
+		this.event = event;
+		this.rawCategory = rawCategory;
+		category = LsmEventCategory.parse(rawCategory);
+		canonicalName = rawCategory.equals(category.toString());
+		// race and id take 48 bits (see EventId#sortKey()), the category
+		// name order less than 16 bits
+		sortKey = canonicalName ? event.sortKey() << 16 | category.nameOrder()
+				: event.sortKey() << 16;
+	}
+
+	EventId event() {
+		return event;
+	}
+
+	String rawCategory() {
+		return rawCategory;
+	}
+
+	LsmEventCategory category() {
+		return category;
+	}
+
+	/**
+	 * @return {@code true} if the category is written as its canonical name
+	 *         (e.g. {@code M C1x*} rather than {@code M C1X*})
+	 */
+	boolean hasCanonicalName() {
+		return canonicalName;
+	}
 
 	@Override
 	public int compareTo(final EventCategoryKey o) {
-		return Comparator.comparing(EventCategoryKey::event, EventId.COMPARATOR)
-				.thenComparing(EventCategoryKey::category).compare(this, o);
+		if (canonicalName && o.canonicalName) {
+			return Long.compare(sortKey, o.sortKey);
+		}
+		final int res = Long.compare(sortKey >>> 16, o.sortKey >>> 16);
+		if (res != 0) {
+			return res;
+		}
+		return rawCategory.compareTo(o.rawCategory);
+	}
+
+	/**
+	 * @return the key of another category in the same event, written as its
+	 *         canonical name
+	 */
+	public EventCategoryKey withCategory(final LsmEventCategory category) {
+		return new EventCategoryKey(event, category.toString());
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		return this == obj || obj instanceof final EventCategoryKey other
+				&& event.equals(other.event)
+				&& rawCategory.equals(other.rawCategory);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(event, rawCategory);
 	}
 
-	public EventCategoryKey withCategory(final String category) {
-		return new EventCategoryKey(event, category);
+	@Override
+	public String toString() {
+		return "EventCategoryKey[event=" + event + ", category=" + rawCategory
+				+ "]";
 	}
 
 }
@@ -5,18 +5,27 @@ import java.util.Comparator;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import org.apache.poi.util.StringUtil;
 
 import com.google.common.collect.Maps;
 
-public record EventId(String emoji, int id) {
-
-	public static final Comparator<EventId> COMPARATOR = Comparator
-			.comparing((final EventId eid) -> Race.fromEmoji(eid.emoji),
-					Comparator.nullsFirst(Comparator.naturalOrder()))
-			.thenComparing(EventId::id,
-					Comparator.nullsFirst(Comparator.naturalOrder()));
+/**
+ * Identifier of an event (CrewTimer "EventNum").
+ *
+ * @param race
+ *            the race resolved from the emoji in the regatta context,
+ *            {@code null} if there is no emoji
+ */
+public record EventId(String emoji, int id, Race race) {
+
+	/**
+	 * Orders by race (events without race first), then by id. Only compares
+	 * integers since the race is resolved at construction.
+	 */
+	public static final Comparator<EventId> COMPARATOR = (a, b) -> Long
+			.compare(a.sortKey(), b.sortKey());
 
 	// TODO nice-to-have make this more generic across years ?
 	public static enum Race {
@@ -39,48 +48,41 @@ public record EventId(String emoji, int id) {
 		NARVAL("🦄", 2024),
 		NARVAL_B("🦄🦄", 2024),;
 
-		private static final Map<String, Race> getReverse() {
-			return Maps.uniqueIndex(
-					Arrays.stream(Race.values())
-							.filter(r -> r.order == LSM.currentYear).iterator(),
-					Race::getEmoji);
-		}
+		/** Races by (normalized) emoji, per year. Built once. */
+		private static final Map<Integer, Map<String, Race>> BY_YEAR_AND_EMOJI = Arrays
+				.stream(values())
+				.collect(Collectors.groupingBy(Race::getYear,
+						Collectors.collectingAndThen(Collectors.toList(),
+								races -> Maps.uniqueIndex(races,
+										Race::getEmoji))));
 
 		private final String emoji;
 
-		private final int order;
+		private final int year;
 
-		private Race(final String emoji, final int order) {
+		private Race(final String emoji, final int year) {
 			if (StringUtil.isBlank(emoji)) {
 				throw new IllegalArgumentException(
 						"blank emoji is not allowed");
 			}
 			this.emoji = LSM.normalize(emoji);
-			this.order = order;
+			this.year = year;
 		}
 
-		public static Race fromEmoji(final String emoji) {
-			if (emoji == null) {
-				// special case to allow null emoji
-				return null;
-			}
-			final Race res = getReverse().get(LSM.normalize(emoji));
-			if (res == null) {
-				// debug infos
-				System.err.println("emoji chars");
-				emoji.chars().forEach(c -> System.err.printf("%x%n", c));
-				System.err.println("normalized emoji chars");
-				LSM.normalize(emoji).chars()
-						.forEach(c -> System.err.printf("%x%n", c));
+		public String getEmoji() {
+			return emoji;
+		}
 
-				throw new IllegalArgumentException(
-						"Emoji " + emoji + " is not a known race marker");
-			}
-			return res;
+		public int getYear() {
+			return year;
 		}
 
-		public String getEmoji() {
-			return emoji;
+		/**
+		 * @return the immutable index of the races of the given year by their
+		 *         normalized emoji
+		 */
+		static Map<String, Race> indexByEmoji(final int year) {
+			return BY_YEAR_AND_EMOJI.getOrDefault(year, Map.of());
 		}
 	}
 
@@ -90,20 +92,38 @@ public record EventId(String emoji, int id) {
 	private final static Pattern EVENT_ENUM_PATTERN_2022 = Pattern
 			.compile("(\\d+)");
 
-	public static EventId from(final String eventNumRaw) {
+	public static EventId from(final String eventNumRaw,
+			final RegattaContext context) {
 		Matcher matcher = EVENT_ENUM_PATTERN_2022.matcher(eventNumRaw);
 		if (matcher.matches()) {
-			return new EventId(null, Integer.parseInt(matcher.group(1)));
+			return new EventId(null, Integer.parseInt(matcher.group(1)), null);
 		}
 		matcher = EVENT_ENUM_PATTERN_2023.matcher(eventNumRaw);
 		if (matcher.matches()) {
-			return new EventId(matcher.group(1),
-					Integer.parseInt(matcher.group(2)));
+			final String emoji = matcher.group(1);
+			return new EventId(emoji, Integer.parseInt(matcher.group(2)),
+					context.getRace(emoji));
 		}
 		throw new RuntimeException(
 				"Failed to detect pattern for eventId " + eventNumRaw);
 	}
 
+	/**
+	 * @return the ordinal of the race, -1 if none
+	 */
+	int raceOrdinal() {
+		return race == null ? -1 : race.ordinal();
+	}
+
+	/**
+	 * @return the race (16 bits) and the id (32 bits) packed in the 48 low
+	 *         bits of a {@code long}, in the order of {@link #COMPARATOR}
+	 */
+	long sortKey() {
+		// +1 so that events without race come first
+		return (long) (raceOrdinal() + 1) << 32 | Integer.toUnsignedLong(id);
+	}
+
 	@Override
 	public String toString() {
 		final StringBuilder sb = new StringBuilder();
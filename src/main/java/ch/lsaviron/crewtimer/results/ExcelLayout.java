@@ -0,0 +1,213 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Layout of the printed sheets: estimates the height of the rows from the
+ * metrics of their font (AWT, no display needed), so that rows get explicit
+ * heights, then computes page breaks between race blocks.
+ * <p>
+ * All lengths are in points, unless stated otherwise. Thread-safe.
+ *
+ * @author Jean-David Maillefer
+ */
+final class ExcelLayout {
+
+	/** Font used when the font of the workbook is not installed. */
+	static final String FALLBACK_FONT_NAME = Font.SANS_SERIF;
+
+	static final int TWIPS_PER_POINT = 20;
+
+	/** Width of a column in 1/256th of a character (see POI). */
+	private static final float COLUMN_WIDTH_UNITS_PER_CHAR = 256f;
+
+	/** Margin of a cell, left and right (about 5 pixels). */
+	private static final float CELL_PADDING = 3.75f;
+
+	/** Space above and below the text of a row. */
+	private static final float ROW_PADDING = 3f;
+
+	private static final FontRenderContext FONT_RENDER_CONTEXT = new FontRenderContext(
+			null, true, true);
+
+	private final Font font;
+
+	/** Width of the widest digit: the unit of the column widths. */
+	private final float digitWidth;
+
+	private final float lineHeight;
+
+	/**
+	 * Heights of the rows already measured, by text and column width.
+	 * Concurrent, since the rows of several sheets may be measured
+	 * concurrently.
+	 */
+	private final Map<String, Map<Integer, Short>> heightsByText = new ConcurrentHashMap<>();
+
+	/**
+	 * @param fontName
+	 *            name of the font of the cells, replaced by
+	 *            {@link #FALLBACK_FONT_NAME} if not installed
+	 */
+	ExcelLayout(final String fontName, final int fontSize) {
+		final Font requested = new Font(fontName, Font.PLAIN, fontSize);
+		// AWT silently uses the "Dialog" font if the font is not installed
+		font = requested.getFamily(Locale.ROOT).equalsIgnoreCase(fontName)
+				? requested
+				: new Font(FALLBACK_FONT_NAME, Font.PLAIN, fontSize);
+		float maxDigitWidth = 0;
+		for (char digit = '0'; digit <= '9'; digit++) {
+			maxDigitWidth = Math.max(maxDigitWidth, width(String.valueOf(digit)));
+		}
+		digitWidth = maxDigitWidth;
+		lineHeight = font.getLineMetrics("Xg", FONT_RENDER_CONTEXT)
+				.getHeight();
+	}
+
+	/**
+	 * @return the name of the font actually measured
+	 */
+	String getFontName() {
+		return font.getName();
+	}
+
+	private float width(final String text) {
+		return (float) font.getStringBounds(text, FONT_RENDER_CONTEXT)
+				.getWidth();
+	}
+
+	/**
+	 * @param widthUnits
+	 *            the width as given to
+	 *            {@link org.apache.poi.ss.usermodel.Sheet#setColumnWidth(int, int)}
+	 */
+	float getColumnWidth(final int widthUnits) {
+		return widthUnits / COLUMN_WIDTH_UNITS_PER_CHAR * digitWidth
+				+ CELL_PADDING;
+	}
+
+	/**
+	 * @return the height of a row of one line of the given font size, in
+	 *         twips
+	 */
+	short getRowHeight(final int fontSize) {
+		return toTwips(lineHeight * fontSize / font.getSize() + ROW_PADDING);
+	}
+
+	/**
+	 * @return the height, in twips, of a row whose text is wrapped in a column
+	 *         of the given width
+	 */
+	short getWrappedRowHeight(final String text, final int widthUnits) {
+		if (text == null || text.isEmpty()) {
+			return getRowHeight(font.getSize());
+		}
+		return heightsByText
+				.computeIfAbsent(text, t -> new ConcurrentHashMap<>(2))
+				.computeIfAbsent(widthUnits,
+						w -> toTwips(countLines(text,
+								getColumnWidth(w) - 2 * CELL_PADDING)
+								* lineHeight + ROW_PADDING));
+	}
+
+	/**
+	 * @return the number of lines of the text wrapped at spaces (or inside
+	 *         words longer than a line) to fit in the given width
+	 */
+	int countLines(final String text, final float width) {
+		int lines = 1;
+		float lineWidth = 0;
+		final float spaceWidth = width(" ");
+		for (final String word : text.split(" ")) {
+			float wordWidth = width(word);
+			final float neededWidth = lineWidth == 0 ? wordWidth
+					: lineWidth + spaceWidth + wordWidth;
+			if (neededWidth <= width) {
+				lineWidth = neededWidth;
+				continue;
+			}
+			if (lineWidth > 0) {
+				lines++;
+			}
+			// break a word longer than a line
+			while (wordWidth > width) {
+				lines++;
+				wordWidth -= width;
+			}
+			lineWidth = wordWidth;
+		}
+		return lines;
+	}
+
+	private static short toTwips(final float points) {
+		return (short) Math.ceil(points * TWIPS_PER_POINT);
+	}
+
+	/**
+	 * Computes page breaks so that a block of rows (e.g. a race) is never
+	 * split, unless it does not fit on a page alone.
+	 *
+	 * @param rowHeights
+	 *            the height of each row, in twips
+	 * @param firstRow
+	 *            the first row laid out (the previous ones being repeated on
+	 *            each page)
+	 * @param nbRows
+	 *            the number of rows
+	 * @param blockStarts
+	 *            the first row of each block, in increasing order
+	 * @param pageHeight
+	 *            the height available on each page, in twips
+	 * @return the rows after which a page break must be inserted
+	 */
+	static List<Integer> computePageBreaks(final short[] rowHeights,
+			final int firstRow, final int nbRows, final int[] blockStarts,
+			final int pageHeight) {
+		final List<Integer> res = new ArrayList<>();
+		int usedHeight = 0;
+		int block = 0;
+		int row = firstRow;
+		while (row < nbRows) {
+			// rows until the next block
+			while (block < blockStarts.length && blockStarts[block] <= row) {
+				block++;
+			}
+			final int end = block < blockStarts.length ? blockStarts[block]
+					: nbRows;
+			int blockHeight = 0;
+			for (int r = row; r < end; r++) {
+				blockHeight += rowHeights[r];
+			}
+			if (usedHeight + blockHeight <= pageHeight) {
+				usedHeight += blockHeight;
+			} else if (blockHeight <= pageHeight) {
+				// next page
+				res.add(row - 1);
+				usedHeight = blockHeight;
+			} else {
+				// too tall for a page: split it where needed
+				if (usedHeight > 0) {
+					res.add(row - 1);
+					usedHeight = 0;
+				}
+				for (int r = row; r < end; r++) {
+					if (usedHeight + rowHeights[r] > pageHeight
+							&& usedHeight > 0) {
+						res.add(r - 1);
+						usedHeight = 0;
+					}
+					usedHeight += rowHeights[r];
+				}
+			}
+			row = end;
+		}
+		return res;
+	}
+
+}
@@ -12,13 +12,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Properties;
-import java.util.SortedMap;
-import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.stream.Collector;
-import java.util.stream.Collectors;
 
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
@@ -26,7 +21,6 @@ import org.apache.poi.ss.usermodel.ClientAnchor;
 import org.apache.poi.ss.usermodel.ClientAnchor.AnchorType;
 import org.apache.poi.ss.usermodel.CreationHelper;
 import org.apache.poi.ss.usermodel.Drawing;
-import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.HorizontalAlignment;
 import org.apache.poi.ss.usermodel.PageMargin;
 import org.apache.poi.ss.usermodel.PrintSetup;
@@ -38,7 +32,9 @@ import org.apache.poi.ss.util.WorkbookUtil;
 import org.apache.poi.util.IOUtils;
 import org.apache.poi.util.Units;
 
-import ch.lsaviron.lsm.LsmEventCategory;
+import ch.lsaviron.crewtimer.results.ExcelStyleRegistry.FontKey;
+import ch.lsaviron.crewtimer.results.ExcelStyleRegistry.StyleKey;
+
 
 /**
  * @author Jean-David Maillefer
@@ -49,11 +45,31 @@ abstract class ExcelPrintHelper implements PrintHelper {
 
 	private static final String DEFAULT_FONT_NAME = "Trebuchet MS";
 
+	private static final String HEADER_FONT_NAME = DEFAULT_FONT_NAME
+			+ " Bold Italic";
+
 	private static final double CM_PER_INCH = 2.54d;
 
 	private static final int POINTS_PER_INCH = 72;
 
-	private static final int TWIPS_PER_POINT = 20;
+	private static final int TWIPS_PER_POINT = ExcelLayout.TWIPS_PER_POINT;
+
+	/** Height of the default font of the workbook. */
+	private static final int DEFAULT_FONT_SIZE = 11;
+
+	/** Widths of the result columns. */
+	private static final int[] COLUMN_WIDTHS = { 1800, 800, 3300, 18000, 3000,
+			3500 };
+
+	private static final int CREW_COLUMN = 3;
+
+	/** Number of title rows, repeated on each page. */
+	private static final int NB_TITLE_ROWS = 5;
+
+	/** Last column of the results, without splits. */
+	private static final int LAST_RESULT_COLUMN = 5;
+
+	private static final int SPLIT_COLUMN_WIDTH = 4500;
 
 	private final String outputFile;
 
@@ -63,6 +79,16 @@ abstract class ExcelPrintHelper implements PrintHelper {
 
 	int rownum;
 
+	/** Last column of the current sheet, splits included. */
+	private int lastColumn;
+
+	private final ExcelLayout layout;
+
+	/** Heights of the rows of the current sheet, in twips. */
+	private short[] rowHeights;
+
+	private final ExcelStyleRegistry styles;
+
 	private final CellStyle resultHeaderStyle;
 
 	private final CellStyle raceHeaderStyle;
@@ -107,36 +133,30 @@ abstract class ExcelPrintHelper implements PrintHelper {
 
 		initImages();
 
-		final Font font0 = wb.createFont();
-		font0.setFontName(DEFAULT_FONT_NAME);
-		wb.getCellStyleAt(0).setFont(font0);
-
-		final Font font = wb.createFont();
-		font.setFontHeightInPoints((short) 13);
-		font.setFontName(DEFAULT_FONT_NAME);
-		font.setItalic(true);
+		styles = new ExcelStyleRegistry(wb);
 
-		resultHeaderStyle = wb.createCellStyle();
-		resultHeaderStyle.setFont(font);
+		final FontKey font0 = new FontKey(DEFAULT_FONT_NAME,
+				ExcelStyleRegistry.DEFAULT_HEIGHT, false, false);
+		wb.getCellStyleAt(0).setFont(styles.getFont(font0));
 
-		final Font font2 = wb.createFont();
-		font2.setFontHeightInPoints((short) 18);
-		font2.setFontName(DEFAULT_FONT_NAME);
-		font2.setBold(true);
+		resultHeaderStyle = styles.getStyle(
+				new FontKey(DEFAULT_FONT_NAME, (short) 13, false, true));
 
-		raceHeaderStyle = wb.createCellStyle();
-		raceHeaderStyle.setFont(font2);
+		raceHeaderStyle = styles.getStyle(
+				new FontKey(DEFAULT_FONT_NAME, (short) 18, true, false));
 
-		crewCellStyle = wb.createCellStyle();
-		crewCellStyle.setFont(font0);
-		crewCellStyle.setWrapText(true);
+		crewCellStyle = styles.getStyle(
+				new StyleKey(font0, HorizontalAlignment.GENERAL, true));
 
 		messages = loadMessages();
 
-		System.out.println(
-				"Attention: comme la hauteur par défaut (-1) est utilisée pour que certaines cellules soit dimensionnées automatiquement"
-						+ " en fonction de leur contenu, les sauts de page ne seront pas calculés juste."
-						+ " Il faudra donc les vérifier avec soin.");
+		layout = new ExcelLayout(DEFAULT_FONT_NAME, DEFAULT_FONT_SIZE);
+		if (!layout.getFontName().equals(DEFAULT_FONT_NAME)) {
+			System.out.printf(
+					"Attention: police %s non installée, la hauteur des lignes et les sauts de page sont estimés avec %s%n",
+					DEFAULT_FONT_NAME,
+					layout.getFontName());
+		}
 	}
 
 	private void initImages() {
@@ -154,14 +174,12 @@ abstract class ExcelPrintHelper implements PrintHelper {
 				"tab." + keyPrefix + ".tabName");
 		sheet = wb.createSheet(WorkbookUtil.createSafeSheetName(sheetName));
 		rownum = 0;
+		lastColumn = LAST_RESULT_COLUMN;
+		rowHeights = new short[64];
 
-		int col = 0;
-		sheet.setColumnWidth(col++, 1800);
-		sheet.setColumnWidth(col++, 800);
-		sheet.setColumnWidth(col++, 3300);
-		sheet.setColumnWidth(col++, 18000);
-		sheet.setColumnWidth(col++, 3000);
-		sheet.setColumnWidth(col++, 3500);
+		for (int col = 0; col < COLUMN_WIDTHS.length; col++) {
+			sheet.setColumnWidth(col, COLUMN_WIDTHS[col]);
+		}
 
 		// print settings
 		final PrintSetup ps = sheet.getPrintSetup();
@@ -232,109 +250,81 @@ abstract class ExcelPrintHelper implements PrintHelper {
 
 		sheet.setPrintGridlines(false);
 		sheet.setAutobreaks(false);
-		wb.setPrintArea(wb.getSheetIndex(sheet), 0, 5, 5, rownum - 1);
+		wb.setPrintArea(wb.getSheetIndex(sheet), 0, lastColumn, 5, rownum - 1);
 		// repeat first 5 rows on each page
 		sheet.setRepeatingRows(CellRangeAddress.valueOf("1:5"));
 
-		// page breaks computation disabled since not accurate due to use of default height/sizing by Excel.
-		if (false) {
-			computePageBreaks();
+		computePageBreaks();
+	}
+
+	/**
+	 * Creates the next row, with an explicit height so that the page breaks
+	 * can be computed.
+	 */
+	private Row createRow(final short height) {
+		final Row row = sheet.createRow(rownum);
+		row.setHeight(height);
+		if (rownum == rowHeights.length) {
+			rowHeights = Arrays.copyOf(rowHeights, 2 * rownum);
 		}
+		rowHeights[rownum] = height;
+		rownum++;
+		return row;
 	}
 
+	/**
+	 * Computes the page breaks from the heights of the rows created (rows are
+	 * not read back, to support streaming workbooks), never splitting a race.
+	 */
 	private void computePageBreaks() {
-		final TreeSet<Integer> raceHeaderRowNums = raceHeaderRowNumsBySheetName
-				.get(sheet.getSheetName());
-		final short defaultSheetHeight = sheet.getDefaultRowHeight();
-		final short estimatedRealDefaultSheetHeight = 16 * TWIPS_PER_POINT;
-		//System.out.println("header rows: " + raceHeaderRowNums);
-		int pageHeight = 0;
-		int maxPageHeight = (int) Math.round(29.7d /* cm */
-				* POINTS_PER_INCH * TWIPS_PER_POINT / CM_PER_INCH);
-		maxPageHeight -= 2 * MARGIN_CM * POINTS_PER_INCH * TWIPS_PER_POINT
-				/ CM_PER_INCH;
-		for (int rownum = sheet.getFirstRowNum(); rownum <= sheet
-				.getLastRowNum(); ++rownum) {
-			final Row row = sheet.getRow(rownum);
-			short rowHeight = row.getHeight();
-			if (rowHeight == defaultSheetHeight) {
-				rowHeight = estimatedRealDefaultSheetHeight;
-			}
-			if (rownum < 5) {
-				// we remove the first 5 rows from page height
-				maxPageHeight -= rowHeight;
-			} else {
-				pageHeight += rowHeight;
-				if (pageHeight > maxPageHeight) {
-					final int lastHeaderRow = raceHeaderRowNums.floor(rownum);
-//					System.out.println(
-//							"Page break before rownum " + lastHeaderRow);
-					sheet.setRowBreak(lastHeaderRow - 1);
-					rownum = lastHeaderRow;
-					pageHeight = rowHeight;
-				}
-			}
+		final int[] raceHeaderRowNums = raceHeaderRowNumsBySheetName
+				.getOrDefault(sheet.getSheetName(), new TreeSet<>()).stream()
+				.mapToInt(Integer::intValue).toArray();
+		// the sheet is scaled to fit the page width
+		float sheetWidth = 0;
+		for (int col = 0; col <= lastColumn; col++) {
+			sheetWidth += layout.getColumnWidth(sheet.getColumnWidth(col));
+		}
+		final double pageWidth = (21.0d /* cm */ - 2 * MARGIN_CM)
+				* POINTS_PER_INCH / CM_PER_INCH;
+		final double scale = Math.min(1, pageWidth / sheetWidth);
+		int maxPageHeight = (int) Math.round((29.7d /* cm */ - 2 * MARGIN_CM)
+				* POINTS_PER_INCH * TWIPS_PER_POINT / CM_PER_INCH / scale);
+		for (int row = 0; row < NB_TITLE_ROWS; row++) {
+			// repeated on each page
+			maxPageHeight -= rowHeights[row];
+		}
+		for (final int row : ExcelLayout.computePageBreaks(rowHeights,
+				NB_TITLE_ROWS,
+				rownum,
+				raceHeaderRowNums,
+				maxPageHeight)) {
+			sheet.setRowBreak(row);
 		}
 	}
 
 	private void initHeader(final String keyPrefix) {
 		// TODO: this is too complex. Check if simpler to use a template instead (but need to have a template for both XLS and XLSX ?)
-		Row row = sheet.createRow(rownum);
-		Cell cell = row.createCell(0);
-		CellStyle cellStyle = wb.createCellStyle();
-		cellStyle.setAlignment(HorizontalAlignment.CENTER);
-		Font font = createFontForHeader();
-		font.setBold(true);
-		font.setFontHeightInPoints((short) 22);
-		cellStyle.setFont(font);
-		cell.setCellStyle(cellStyle);
-		cell.setCellValue(getMessageSafe("title.main"));
-		sheet.addMergedRegion(new CellRangeAddress(rownum, rownum, 0, 5));
-		rownum++;
-
-		final CellStyle cellStyleTemplate = cellStyle;
-
-		row = sheet.createRow(rownum);
-		cell = row.createCell(0);
-		cellStyle = wb.createCellStyle();
-		cellStyle.cloneStyleFrom(cellStyleTemplate);
-		font = createFontForHeader();
-		font.setBold(true);
-		font.setFontHeightInPoints((short) 16);
-		cellStyle.setFont(font);
-		cell.setCellStyle(cellStyle);
-		cell.setCellValue(getMessageSafe("title.detail"));
-		sheet.addMergedRegion(new CellRangeAddress(rownum, rownum, 0, 5));
-		rownum++;
-
-		row = sheet.createRow(rownum);
-		cell = row.createCell(0);
-		cellStyle = wb.createCellStyle();
-		cellStyle.cloneStyleFrom(cellStyleTemplate);
-		font = createFontForHeader();
-		font.setFontHeightInPoints((short) 16);
-		cellStyle.setFont(font);
-		cell.setCellStyle(cellStyle);
-		cell.setCellValue(getMessageSafe("title.date"));
-		sheet.addMergedRegion(new CellRangeAddress(rownum, rownum, 0, 5));
-		rownum++;
-
-		row = sheet.createRow(rownum);
-		cell = row.createCell(0);
-		cellStyle = wb.createCellStyle();
-		cellStyle.cloneStyleFrom(cellStyleTemplate);
-		font = createFontForHeader();
-		font.setBold(true);
-		font.setFontHeightInPoints((short) 13);
-		cellStyle.setFont(font);
-		cell.setCellStyle(cellStyle);
-		cell.setCellValue(getMessageSafe("tab." + keyPrefix + ".title"));
-		sheet.addMergedRegion(new CellRangeAddress(rownum, rownum, 0, 5));
-		rownum++;
+		addTitleRow(getMessageSafe("title.main"), (short) 22, true);
+		addTitleRow(getMessageSafe("title.detail"), (short) 16, true);
+		addTitleRow(getMessageSafe("title.date"), (short) 16, false);
+		addTitleRow(getMessageSafe("tab." + keyPrefix + ".title"),
+				(short) 13,
+				true);
+
+		createRow((short) (15 * TWIPS_PER_POINT));
+	}
 
-		row = sheet.createRow(rownum);
-		row.setHeightInPoints(15);
-		rownum++;
+	private void addTitleRow(final String title, final short heightInPoints,
+			final boolean bold) {
+		final Row row = createRow(layout.getRowHeight(heightInPoints));
+		final Cell cell = row.createCell(0);
+		cell.setCellStyle(styles.getStyle(new StyleKey(
+				new FontKey(HEADER_FONT_NAME, heightInPoints, bold, false),
+				HorizontalAlignment.CENTER, false)));
+		cell.setCellValue(title);
+		sheet.addMergedRegion(
+				new CellRangeAddress(rownum - 1, rownum - 1, 0, 5));
 	}
 
 	private String getMessageSafe(final String key) {
@@ -344,12 +334,6 @@ abstract class ExcelPrintHelper implements PrintHelper {
 		return messages.getProperty(key);
 	}
 
-	private Font createFontForHeader() {
-		final Font font = wb.createFont();
-		font.setFontName(DEFAULT_FONT_NAME + " Bold Italic");
-		return font;
-	}
-
 	private byte[] loadImage(final String image) {
 		try {
 			return IOUtils.toByteArray(ExcelPrintHelper.class.getClassLoader()
@@ -373,20 +357,17 @@ abstract class ExcelPrintHelper implements PrintHelper {
 	}
 
 	@Override
-	public void printRaceHeader(final String header) {
+	public void printRaceHeader(final String header, final List<String> legs) {
 		raceHeaderRowNumsBySheetName
 				.computeIfAbsent(sheet.getSheetName(), key -> new TreeSet<>())
 				.add(rownum);
-		final Row row1 = sheet.createRow(rownum);
-		row1.setHeight((short) 1200);
+		final Row row1 = createRow((short) 1200);
 		final Cell cellHeader = row1.createCell(0);
 		cellHeader.setCellValue(header);
 		cellHeader.setCellStyle(raceHeaderStyle);
-		setMerged(rownum);
-		++rownum;
+		setMerged(rownum - 1);
 
-		final Row row2 = sheet.createRow(rownum++);
-		row2.setHeight((short) 700);
+		final Row row2 = createRow((short) 700);
 		// setting style on row does not seem to work
 		//row2.setRowStyle(styleHeader);
 		int colnum = 0;
@@ -396,6 +377,11 @@ abstract class ExcelPrintHelper implements PrintHelper {
 		fill(row2.createCell(colnum++), "Equipe", resultHeaderStyle);
 		fill(row2.createCell(colnum++), "Temps", resultHeaderStyle);
 		fill(row2.createCell(colnum++), "Différence", resultHeaderStyle);
+		for (final String leg : legs) {
+			sheet.setColumnWidth(colnum, SPLIT_COLUMN_WIDTH);
+			fill(row2.createCell(colnum++), leg, resultHeaderStyle);
+		}
+		lastColumn = Math.max(lastColumn, colnum - 1);
 	}
 
 	private void setMerged(final int rownum) {
@@ -413,12 +399,33 @@ abstract class ExcelPrintHelper implements PrintHelper {
 	}
 
 	@Override
-	public void printResultRow(final Integer categoryRank, final String medals,
+	public void printResultRow(final int categoryRank, final String medals,
 			final String crewAbbrev, final String crew, final String adjTime,
-			final String delta) {
-		final Row row = sheet.createRow(rownum++);
-		// to allow auto-format for too long values
-		row.setHeight((short) -1);
+			final int deltaMillis, final List<String> splits) {
+		printResultRow(measureResultRow(crew),
+				categoryRank,
+				medals,
+				crewAbbrev,
+				crew,
+				adjTime,
+				deltaMillis,
+				splits);
+	}
+
+	/**
+	 * The crew is wrapped when too long.
+	 */
+	@Override
+	public short measureResultRow(final String crew) {
+		return layout.getWrappedRowHeight(crew, COLUMN_WIDTHS[CREW_COLUMN]);
+	}
+
+	@Override
+	public void printResultRow(final short rowHeight, final int categoryRank,
+			final String medals, final String crewAbbrev, final String crew,
+			final String adjTime, final int deltaMillis,
+			final List<String> splits) {
+		final Row row = createRow(rowHeight);
 		int col = 0;
 		row.createCell(col++)
 				.setCellValue(PrintHelper.formatRank(categoryRank));
@@ -428,7 +435,10 @@ abstract class ExcelPrintHelper implements PrintHelper {
 		cell.setCellValue(crew);
 		cell.setCellStyle(crewCellStyle);
 		row.createCell(col++).setCellValue(PrintHelper.formatAdjTime(adjTime));
-		row.createCell(col++).setCellValue(PrintHelper.formatDelta(delta));
+		row.createCell(col++).setCellValue(PrintHelper.formatDelta(deltaMillis));
+		for (final String split : splits) {
+			row.createCell(col++).setCellValue(split);
+		}
 		//System.out.printf("rank: %s crew: %s%n", categoryRank, crewAbbrev);
 	}
 
@@ -439,8 +449,11 @@ abstract class ExcelPrintHelper implements PrintHelper {
 
 	@Override
 	public void end() {
-		try (OutputStream fileOut = new FileOutputStream(outputFile)) {
-			wb.write(fileOut);
+		// closing a streaming workbook deletes the temporary files of the
+		// flushed rows
+		try (Workbook workbook = wb;
+				OutputStream fileOut = new FileOutputStream(outputFile)) {
+			workbook.write(fileOut);
 		} catch (final IOException e) {
 			throw new RuntimeException(e);
 		}
@@ -448,40 +461,41 @@ abstract class ExcelPrintHelper implements PrintHelper {
 	}
 
 	@Override
-	public List<SubResult> getSubResults(
-			final SortedMap<EventCategoryKey, List<CategoryResult>> results) {
+	public List<SubResult> getSubResults(final ResultTable results) {
 		return Arrays.asList(new ExcelSubResult("swissChampionship") {
 
 			@Override
-			public SortedMap<EventCategoryKey, List<CategoryResult>> getResults() {
-				return results.entrySet().stream().filter(e -> LsmEventCategory
-						.parse(e.getKey().category()).swissChampionship())
-						.collect(getCollector(results));
+			public ResultTable getResults() {
+				return results.filter(k -> k.category().swissChampionship());
 			}
 
 		}, new ExcelSubResult("lsm") {
 
 			@Override
-			public SortedMap<EventCategoryKey, List<CategoryResult>> getResults() {
-				return results.entrySet().stream().filter(e -> !LsmEventCategory
-						.parse(e.getKey().category()).swissChampionship())
-						.collect(getCollector(results));
+			public ResultTable getResults() {
+				return results
+						.filter(k -> !k.category().swissChampionship());
 			}
 
 		});
 	}
 
-	private Collector<Entry<EventCategoryKey, List<CategoryResult>>, ?, TreeMap<EventCategoryKey, List<CategoryResult>>> getCollector(
-			final SortedMap<EventCategoryKey, List<CategoryResult>> results) {
-		return Collectors.toMap(
-				Entry<EventCategoryKey, List<CategoryResult>>::getKey,
-				Entry<EventCategoryKey, List<CategoryResult>>::getValue,
-				(a, b) -> {
-					throw new IllegalArgumentException(String.format(
-							"Should not happen since already unique a: %s, b: %s"));
-				},
-				() -> new TreeMap<EventCategoryKey, List<CategoryResult>>(
-						results.comparator()));
+	@Override
+	public SubResult getLeaderboardSubResult(
+			final List<Leaderboard> leaderboards) {
+		return new ExcelSubResult("leaderboard") {
+
+			@Override
+			public ResultTable getResults() {
+				return ResultTable.EMPTY;
+			}
+
+			@Override
+			public List<Leaderboard> getLeaderboards() {
+				return leaderboards;
+			}
+
+		};
 	}
 
 	abstract class ExcelSubResult implements SubResult {
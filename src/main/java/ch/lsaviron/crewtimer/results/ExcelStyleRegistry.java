@@ -0,0 +1,74 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * Fonts and cell styles of a workbook, created once per distinct set of
+ * attributes and then shared, so that the style table of the workbook does not
+ * grow with the number of sheets (Excel limits the number of styles).
+ *
+ * @author Jean-David Maillefer
+ */
+final class ExcelStyleRegistry {
+
+	/** Height of {@link FontKey} keeping the default height of the workbook. */
+	static final short DEFAULT_HEIGHT = 0;
+
+	/**
+	 * @param heightInPoints
+	 *            the height, {@link ExcelStyleRegistry#DEFAULT_HEIGHT} for the
+	 *            default one
+	 */
+	record FontKey(String name, short heightInPoints, boolean bold,
+			boolean italic) {
+	}
+
+	record StyleKey(FontKey font, HorizontalAlignment alignment,
+			boolean wrapText) {
+	}
+
+	private final Workbook wb;
+
+	private final Map<FontKey, Font> fonts = new HashMap<>();
+
+	private final Map<StyleKey, CellStyle> styles = new HashMap<>();
+
+	ExcelStyleRegistry(final Workbook wb) {
+		this.wb = wb;
+	}
+
+	Font getFont(final FontKey key) {
+		return fonts.computeIfAbsent(key, k -> {
+			final Font font = wb.createFont();
+			font.setFontName(k.name());
+			if (k.heightInPoints() != DEFAULT_HEIGHT) {
+				font.setFontHeightInPoints(k.heightInPoints());
+			}
+			font.setBold(k.bold());
+			font.setItalic(k.italic());
+			return font;
+		});
+	}
+
+	CellStyle getStyle(final StyleKey key) {
+		return styles.computeIfAbsent(key, k -> {
+			final CellStyle style = wb.createCellStyle();
+			style.setFont(getFont(k.font()));
+			style.setAlignment(k.alignment());
+			style.setWrapText(k.wrapText());
+			return style;
+		});
+	}
+
+	CellStyle getStyle(final FontKey font) {
+		return getStyle(
+				new StyleKey(font, HorizontalAlignment.GENERAL, false));
+	}
+
+}
@@ -0,0 +1,163 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+
+import ch.lsaviron.swissrowing.AgeCategory;
+import ch.lsaviron.swissrowing.EventCategory;
+import ch.lsaviron.swissrowing.OarCategory;
+import ch.lsaviron.swissrowing.RowingCategory;
+import ch.lsaviron.swissrowing.SexCategory;
+
+/**
+ * Correction factors of the times for the overall leaderboards, by dimension of
+ * {@link EventCategory}: the corrected time is the adjusted time multiplied by
+ * the factor of each dimension of the category, a missing factor being 1.
+ * <p>
+ * Factors are read from properties such as {@code age.MASTER = 0.94}, with
+ * the keys {@code age.<AgeCategory>}, {@code sex.<SexCategory>},
+ * {@code rowing.<RowingCategory>}, {@code rowers.<n>},
+ * {@code oar.<OarCategory>} and {@code coxed.<true|false>}. They are resolved
+ * once for all the packed categories ({@link EventCategory#code()}), so that
+ * correcting a time is an array lookup.
+ *
+ * @author Jean-David Maillefer
+ */
+final class HandicapFactors {
+
+	private static final String DEFAULT_RESOURCE = "handicap_factors.properties";
+
+	private static final int CODE_MASK = (1 << EventCategory.CODE_BITS) - 1;
+
+	/** Factors of the categories, indexed by {@link EventCategory#code()}. */
+	private final double[] factorsByCode;
+
+	private HandicapFactors(final double[] factorsByCode) {
+		this.factorsByCode = factorsByCode;
+	}
+
+	/**
+	 * @return the factors shipped with the application
+	 */
+	static HandicapFactors loadDefault() {
+		try (InputStream is = HandicapFactors.class.getClassLoader()
+				.getResourceAsStream(DEFAULT_RESOURCE);
+				Reader reader = new InputStreamReader(is,
+						StandardCharsets.UTF_8)) {
+			return of(load(reader));
+		} catch (final IOException e) {
+			throw new RuntimeException("Failed to load handicap factors", e);
+		}
+	}
+
+	static HandicapFactors load(final Path path) throws IOException {
+		try (Reader reader = Files.newBufferedReader(path,
+				StandardCharsets.UTF_8)) {
+			return of(load(reader));
+		}
+	}
+
+	private static Properties load(final Reader reader) throws IOException {
+		final Properties res = new Properties();
+		res.load(reader);
+		return res;
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if a key does not match a dimension value or a factor is not
+	 *             a positive number
+	 */
+	static HandicapFactors of(final Properties factors) {
+		for (final String key : factors.stringPropertyNames()) {
+			if (!isKnownKey(key)) {
+				throw new IllegalArgumentException(
+						"Unknown handicap factor " + key);
+			}
+			final double factor = getFactor(factors, key);
+			if (!(factor > 0)) {
+				throw new IllegalArgumentException(
+						"Handicap factor " + key + " must be positive");
+			}
+		}
+		final double[] factorsByCode = new double[CODE_MASK + 1];
+		Arrays.fill(factorsByCode, 1);
+		for (int code = 0; code <= CODE_MASK; code++) {
+			if (EventCategory.isValidCode(code)) {
+				final EventCategory category = EventCategory.fromCode(code);
+				factorsByCode[code] = getFactor(factors,
+						"age." + category.age())
+						* getFactor(factors, "sex." + category.sex())
+						* getFactor(factors, "rowing." + category.rowing())
+						* getFactor(factors, "rowers." + category.rowers())
+						* getFactor(factors, "oar." + category.oar())
+						* getFactor(factors, "coxed." + category.coxed());
+			}
+		}
+		return new HandicapFactors(factorsByCode);
+	}
+
+	private static boolean isKnownKey(final String key) {
+		final String[] dimensionValue = key.split("\\.", 2);
+		if (dimensionValue.length != 2) {
+			return false;
+		}
+		final String value = dimensionValue[1];
+		return switch (dimensionValue[0]) {
+		case "age" -> Arrays.stream(AgeCategory.values())
+				.anyMatch(v -> v.name().equals(value));
+		case "sex" -> Arrays.stream(SexCategory.values())
+				.anyMatch(v -> v.name().equals(value));
+		case "rowing" -> Arrays.stream(RowingCategory.values())
+				.anyMatch(v -> v.name().equals(value));
+		case "oar" -> Arrays.stream(OarCategory.values())
+				.anyMatch(v -> v.name().equals(value));
+		case "rowers" -> value.matches("[1-8]");
+		case "coxed" -> value.equals("true") || value.equals("false");
+		default -> false;
+		};
+	}
+
+	private static double getFactor(final Properties factors,
+			final String key) {
+		final String factor = factors.getProperty(key);
+		if (factor == null) {
+			return 1;
+		}
+		try {
+			return Double.parseDouble(factor.trim());
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException(
+					"Handicap factor " + key + " is not a number: " + factor,
+					e);
+		}
+	}
+
+	/**
+	 * @param categoryCode
+	 *            the packed category ({@link EventCategory#code()}), possibly
+	 *            with higher bits set (e.g. by
+	 *            {@link ch.lsaviron.lsm.LsmEventCategory#code()})
+	 */
+	double getFactor(final int categoryCode) {
+		return factorsByCode[categoryCode & CODE_MASK];
+	}
+
+	/**
+	 * @return the corrected time, {@link RaceTimes#NO_TIME} if none
+	 */
+	int correct(final int adjTimeMillis, final int categoryCode) {
+		if (adjTimeMillis == RaceTimes.NO_TIME) {
+			return RaceTimes.NO_TIME;
+		}
+		return (int) Math.round(adjTimeMillis * getFactor(categoryCode));
+	}
+
+}
@@ -0,0 +1,97 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Prints the results as HTML tables, one per race, appended to a
+ * {@link StringBuilder} (e.g. a page served by {@link ResultsServer}).
+ *
+ * @author Jean-David Maillefer
+ */
+final class HtmlPrintHelper implements PrintHelper {
+
+	private final StringBuilder sb;
+
+	HtmlPrintHelper(final StringBuilder sb) {
+		this.sb = sb;
+	}
+
+	@Override
+	public void printRaceHeader(final String header, final List<String> legs) {
+		sb.append("<h2>");
+		appendEscaped(sb, header);
+		sb.append("</h2>\n<table>\n<tr><th>Rang</th><th>M</th>"
+				+ "<th>Nom court</th><th>Equipe</th><th>Temps</th>"
+				+ "<th>Différence</th>");
+		for (final String leg : legs) {
+			sb.append("<th>");
+			appendEscaped(sb, leg);
+			sb.append("</th>");
+		}
+		sb.append("</tr>\n");
+	}
+
+	@Override
+	public void printResultRow(final int categoryRank, final String medals,
+			final String crewAbbrev, final String crew, final String adjTime,
+			final int deltaMillis, final List<String> splits) {
+		sb.append("<tr><td>").append(PrintHelper.formatRank(categoryRank))
+				.append("</td><td>");
+		appendEscaped(sb, medals);
+		sb.append("</td><td>");
+		appendEscaped(sb, crewAbbrev);
+		sb.append("</td><td>");
+		appendEscaped(sb, crew);
+		sb.append("</td><td>");
+		appendEscaped(sb, PrintHelper.formatAdjTime(adjTime));
+		sb.append("</td><td>").append(PrintHelper.formatDelta(deltaMillis))
+				.append("</td>");
+		for (final String split : splits) {
+			sb.append("<td>");
+			appendEscaped(sb, split);
+			sb.append("</td>");
+		}
+		sb.append("</tr>\n");
+	}
+
+	@Override
+	public void printRaceFooter() {
+		sb.append("</table>\n");
+	}
+
+	@Override
+	public List<SubResult> getSubResults(final ResultTable results) {
+		return Collections
+				.<SubResult>singletonList(new SimpleSubResult(results));
+	}
+
+	/**
+	 * Appends the text, escaping the HTML special characters.
+	 */
+	static void appendEscaped(final StringBuilder sb, final String text) {
+		if (text == null) {
+			return;
+		}
+		for (int i = 0; i < text.length(); i++) {
+			final char c = text.charAt(i);
+			switch (c) {
+			case '<':
+				sb.append("&lt;");
+				break;
+			case '>':
+				sb.append("&gt;");
+				break;
+			case '&':
+				sb.append("&amp;");
+				break;
+			case '"':
+				sb.append("&quot;");
+				break;
+			default:
+				sb.append(c);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,153 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Prints the results as a JSON array of races, appended to a
+ * {@link StringBuilder}. Each race has its {@code header}, its {@code legs}
+ * and its {@code rows}; times are formatted as in the other print modes,
+ * {@code null} if none.
+ * <p>
+ * In compact mode, only the ranks, medals and deltas of the crews are printed
+ * (e.g. to push the changes of a category).
+ *
+ * @author Jean-David Maillefer
+ */
+final class JsonPrintHelper implements PrintHelper {
+
+	private final StringBuilder sb;
+
+	private final boolean compact;
+
+	private boolean firstRace = true;
+
+	private boolean firstRow;
+
+	JsonPrintHelper(final StringBuilder sb) {
+		this(sb, false);
+	}
+
+	JsonPrintHelper(final StringBuilder sb, final boolean compact) {
+		this.sb = sb;
+		this.compact = compact;
+		sb.append('[');
+	}
+
+	@Override
+	public void printRaceHeader(final String header, final List<String> legs) {
+		if (!firstRace) {
+			sb.append(',');
+		}
+		firstRace = false;
+		sb.append("{\"header\":");
+		appendString(sb, header);
+		if (!compact) {
+			sb.append(",\"legs\":");
+			appendStrings(sb, legs);
+		}
+		sb.append(",\"rows\":[");
+		firstRow = true;
+	}
+
+	@Override
+	public void printResultRow(final int categoryRank, final String medals,
+			final String crewAbbrev, final String crew, final String adjTime,
+			final int deltaMillis, final List<String> splits) {
+		if (!firstRow) {
+			sb.append(',');
+		}
+		firstRow = false;
+		sb.append("{\"rank\":");
+		if (categoryRank == 0) {
+			sb.append("null");
+		} else {
+			sb.append(categoryRank);
+		}
+		sb.append(",\"medals\":");
+		appendString(sb, medals);
+		sb.append(",\"crewAbbrev\":");
+		appendString(sb, crewAbbrev);
+		if (!compact) {
+			sb.append(",\"crew\":");
+			appendString(sb, crew);
+			sb.append(",\"adjTime\":");
+			appendString(sb, adjTime);
+		}
+		sb.append(",\"delta\":");
+		appendString(sb, deltaMillis == RaceTimes.NO_TIME ? null
+				: PrintHelper.formatDelta(deltaMillis));
+		if (!compact) {
+			sb.append(",\"splits\":");
+			appendStrings(sb, splits);
+		}
+		sb.append('}');
+	}
+
+	@Override
+	public void printRaceFooter() {
+		sb.append("]}");
+	}
+
+	@Override
+	public void end() {
+		sb.append(']');
+	}
+
+	@Override
+	public List<SubResult> getSubResults(final ResultTable results) {
+		return Collections
+				.<SubResult>singletonList(new SimpleSubResult(results));
+	}
+
+	static void appendStrings(final StringBuilder sb,
+			final List<String> values) {
+		sb.append('[');
+		for (int i = 0; i < values.size(); i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			appendString(sb, values.get(i));
+		}
+		sb.append(']');
+	}
+
+	/**
+	 * Appends the value as a JSON string, {@code null} if none.
+	 */
+	static void appendString(final StringBuilder sb, final String value) {
+		if (value == null) {
+			sb.append("null");
+			return;
+		}
+		sb.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					sb.append(String.format("\\u%04x", (int) c));
+				} else {
+					sb.append(c);
+				}
+			}
+		}
+		sb.append('"');
+	}
+
+}
@@ -1,43 +1,37 @@
 package ch.lsaviron.crewtimer.results;
 
-import java.io.FileNotFoundException;
 // Run with:
 // java -cp . LSM.java
 //
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.text.Normalizer;
 import java.text.Normalizer.Form;
 import java.time.Duration;
-import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
-import org.apache.commons.lang3.StringUtils;
-import org.apache.poi.util.StringUtil;
-
 import com.google.common.annotations.VisibleForTesting;
 
 import ch.lsaviron.lsm.LsmEventCategory;
@@ -48,60 +42,235 @@ import ch.lsaviron.swissrowing.AgeCategory;
  */
 public class LSM {
 
-	public static int currentYear = 2024;
+	private static final long DEFAULT_WATCH_INTERVAL_MS = 500;
 
-	private static final Map<Integer, List<String>> INTERMEDIATE_POINTS_CSV_HEADERS_PER_YEAR = Map
-			.of(2023, List.of("Bouée_A", "Bouée_C"));
+	private static final int DEFAULT_LEADERBOARD_SIZE = 10;
 
-	private static final DateTimeFormatter DELTA_FORMATTER = DateTimeFormatter
-			.ofPattern("mm:ss.S");
+	private static final int DEFAULT_SERVER_PORT = 8080;
 
 	private static final DateTimeFormatter RACE_TIME_FORMATTER = DateTimeFormatter
 			.ofPattern("HH'h'mm");
 
 	final String resultsFromCrewTimerCsv;
 
-	private final PrintMode printMode;
+	/** Modes the results are printed in, computed once for all. */
+	private final List<PrintMode> printModes;
+
+	private final RegattaContext context;
+
+	private CsvEngine csvEngine = CsvEngine.COMMONS_CSV;
+
+	/** Poll interval of the watch mode, {@code null} if not watching. */
+	private Duration watchInterval;
+
+	/** Number of threads ranking the categories, 1 for sequential. */
+	private int parallelism = 1;
+
+	/** Whether the splits of the intermediate points are printed. */
+	private boolean splits;
+
+	/** Number of crews of the overall leaderboards, 0 if not printed. */
+	private int leaderboardSize;
+
+	private HandicapFactors handicapFactors;
+
+	/** Port of the results server, {@code null} if not serving. */
+	private Integer serverPort;
+
+	/**
+	 * Whether a snapshot of the ranked results is used (see
+	 * {@link ResultSnapshot}).
+	 */
+	private boolean cache;
+
+	/**
+	 * Messages of the computation being recorded for the snapshot,
+	 * {@code null} if not recording.
+	 */
+	private List<String> messages;
 
 	public LSM(final String resultsFromCrewTimerCsv,
 			final PrintMode printMode) {
+		this(resultsFromCrewTimerCsv, printMode,
+				new RegattaContext(RegattaContext.DEFAULT_YEAR));
+	}
+
+	public LSM(final String resultsFromCrewTimerCsv, final PrintMode printMode,
+			final RegattaContext context) {
+		this(resultsFromCrewTimerCsv, List.of(printMode), context);
+	}
+
+	public LSM(final String resultsFromCrewTimerCsv,
+			final List<PrintMode> printModes, final RegattaContext context) {
+		if (printModes.isEmpty()) {
+			throw new IllegalArgumentException("No print mode");
+		}
+		PrintMode.checkOutputFiles(printModes);
 		this.resultsFromCrewTimerCsv = resultsFromCrewTimerCsv;
-		this.printMode = printMode;
+		this.printModes = List.copyOf(printModes);
+		this.context = context;
 	}
 
-	/**
-	 * Set the current year to the current system year.
-	 */
-	public static void resetCurrentYear() {
-		currentYear = LocalDate.now().getYear();
+	RegattaContext getContext() {
+		return context;
 	}
 
-	public static void setCurrentYear(final int year) {
-		currentYear = year;
+	LSM setCsvEngine(final CsvEngine csvEngine) {
+		this.csvEngine = csvEngine;
+		return this;
+	}
+
+	LSM setWatchInterval(final Duration watchInterval) {
+		this.watchInterval = watchInterval;
+		return this;
+	}
+
+	LSM setParallelism(final int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException(
+					"Parallelism must be positive: " + parallelism);
+		}
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	LSM setSplits(final boolean splits) {
+		this.splits = splits;
+		return this;
+	}
+
+	LSM setLeaderboard(final int leaderboardSize,
+			final HandicapFactors handicapFactors) {
+		if (leaderboardSize < 0) {
+			throw new IllegalArgumentException(
+					"Leaderboard size must not be negative: "
+							+ leaderboardSize);
+		}
+		this.leaderboardSize = leaderboardSize;
+		this.handicapFactors = handicapFactors;
+		return this;
+	}
+
+	LSM setServerPort(final Integer serverPort) {
+		this.serverPort = serverPort;
+		return this;
+	}
+
+	LSM setCache(final boolean cache) {
+		this.cache = cache;
+		return this;
 	}
 
 	public static void main(final String... args) throws Exception {
 		// to avoid a log4j2 warning at startup
 		System.setProperty("log4j2.loggerContextFactory",
 				"org.apache.logging.log4j.simple.SimpleLoggerContextFactory");
+		// fonts are measured for the Excel layout, without display
+		System.setProperty("java.awt.headless", "true");
 
-		if (args.length != 2) {
+		if (args.length < 2) {
 			System.err.println(
-					"Syntax: java LSM.java results-from-crewtimer.csv mode\n"
-							+ "       where mode is SCREEN, TSV, XLS or XLSX");
+					"Syntax: java LSM.java results-from-crewtimer.csv mode[,mode...] [options]\n"
+							+ "       where mode is SCREEN, TSV, XLS, XLSX or XLSX_STREAMING\n"
+							+ "       and options are:\n"
+							+ "         --year=<year> (default: "
+							+ RegattaContext.DEFAULT_YEAR + ")\n"
+							+ "         --csv-engine=COMMONS_CSV|MAPPED\n"
+							+ "         --watch[=poll-interval-ms]: print again the results each time the CSV changes\n"
+							+ "         --parallel[=threads]: rank the categories concurrently\n"
+							+ "         --splits: print the splits of the intermediate timing points\n"
+							+ "         --leaderboard[=size]: print the overall leaderboards with handicap-corrected times (default size: "
+							+ DEFAULT_LEADERBOARD_SIZE + ")\n"
+							+ "         --handicap=factors.properties: correction factors of the leaderboards\n"
+							+ "         --serve[=port]: serve the results over HTTP, updated each time the CSV changes (default port: "
+							+ DEFAULT_SERVER_PORT + ")\n"
+							+ "         --cache: reuse the ranked results of a previous run on the same CSV content (snapshot written next to it)");
 			return;
 		}
 		final String resultsFromCrewTimerCsv = args[0];
-		final PrintMode printMode;
+		final List<PrintMode> printModes;
 		try {
-			printMode = PrintMode.valueOf(args[1].toUpperCase(Locale.ROOT));
+			printModes = Arrays.stream(args[1].split(","))
+					.map(mode -> PrintMode
+							.valueOf(mode.strip().toUpperCase(Locale.ROOT)))
+					.distinct().toList();
 		} catch (final IllegalArgumentException iae) {
 			System.err.printf("Print mode must be one of %s%n",
 					Arrays.toString(PrintMode.values()));
 			return;
 		}
+		try {
+			PrintMode.checkOutputFiles(printModes);
+		} catch (final IllegalArgumentException iae) {
+			System.err.println(iae.getMessage());
+			return;
+		}
 
-		new LSM(resultsFromCrewTimerCsv, printMode).processResults();
+		int year = RegattaContext.DEFAULT_YEAR;
+		CsvEngine csvEngine = CsvEngine.COMMONS_CSV;
+		Duration watchInterval = null;
+		int parallelism = 1;
+		boolean splits = false;
+		int leaderboardSize = 0;
+		HandicapFactors handicapFactors = null;
+		Integer serverPort = null;
+		boolean cache = false;
+		for (final String option : Arrays.asList(args).subList(2,
+				args.length)) {
+			final String[] nameValue = option.split("=", 2);
+			final String value = nameValue.length > 1 ? nameValue[1] : null;
+			try {
+				switch (nameValue[0]) {
+				case "--year":
+					year = Integer.parseInt(value);
+					break;
+				case "--csv-engine":
+					csvEngine = CsvEngine
+							.valueOf(value.toUpperCase(Locale.ROOT));
+					break;
+				case "--watch":
+					watchInterval = Duration.ofMillis(value == null
+							? DEFAULT_WATCH_INTERVAL_MS
+							: Long.parseLong(value));
+					break;
+				case "--parallel":
+					parallelism = value == null
+							? Runtime.getRuntime().availableProcessors()
+							: Integer.parseInt(value);
+					break;
+				case "--splits":
+					splits = true;
+					break;
+				case "--leaderboard":
+					leaderboardSize = value == null ? DEFAULT_LEADERBOARD_SIZE
+							: Integer.parseInt(value);
+					break;
+				case "--handicap":
+					handicapFactors = HandicapFactors.load(Path.of(value));
+					break;
+				case "--cache":
+					cache = true;
+					break;
+				case "--serve":
+					serverPort = value == null ? DEFAULT_SERVER_PORT
+							: Integer.parseInt(value);
+					break;
+				default:
+					System.err.printf("Unknown option %s%n", option);
+					return;
+				}
+			} catch (final IllegalArgumentException | NullPointerException e) {
+				System.err.printf("Invalid value for option %s%n", option);
+				return;
+			}
+		}
+		new LSM(resultsFromCrewTimerCsv, printModes, new RegattaContext(year))
+				.setCsvEngine(csvEngine).setWatchInterval(watchInterval)
+				.setParallelism(parallelism).setSplits(splits)
+				.setLeaderboard(leaderboardSize,
+						handicapFactors == null ? HandicapFactors.loadDefault()
+								: handicapFactors)
+				.setServerPort(serverPort).setCache(cache).processResults();
 	}
 
 	public static String normalize(final String s) {
@@ -111,244 +280,597 @@ public class LSM {
 		return Normalizer.normalize(s, Form.NFC);
 	}
 
-	private void processResults() throws IOException {
+	private void processResults() throws IOException, InterruptedException {
+		if (serverPort != null) {
+			serveResults();
+			return;
+		}
+		if (watchInterval != null) {
+			watchResults();
+			return;
+		}
+		if (cache) {
+			printResults(computeResultTable());
+			return;
+		}
+		printResults(computeResults());
+	}
+
+	/**
+	 * Same as {@link #computeResults()}, reusing the snapshot of the results
+	 * if it is up to date, or writing it otherwise.
+	 */
+	ResultTable computeResultTable() throws IOException {
+		final Path csv = Path.of(resultsFromCrewTimerCsv);
+		// hashed and parsed from the same content, even if the file changes
+		final byte[] content = Files.readAllBytes(csv);
+		final byte[] hash = ResultSnapshot.hash(content);
+		final Path snapshot = ResultSnapshot.getPath(csv);
+		final List<String> snapshotMessages = new ArrayList<>();
+		ResultTable res = ResultSnapshot.load(snapshot,
+				hash,
+				context,
+				snapshotMessages);
+		if (res != null) {
+			System.out.printf("Info: résultats lus depuis %s%n", snapshot);
+			// reported again, so that the warnings are not lost
+			snapshotMessages.forEach(System.out::println);
+			return res;
+		}
+		messages = snapshotMessages;
+		try {
+			final var results = readRawResults(content);
+			mergeSpecialCategories(results);
+			fixRankAndDelta(results);
+			res = ResultTable.of(results);
+		} finally {
+			messages = null;
+		}
+		ResultSnapshot.save(snapshot, hash, context, res, snapshotMessages);
+		return res;
+	}
+
+	/**
+	 * Prints a message (warning or information) of the computation of the
+	 * results, recording it for the snapshot if any.
+	 */
+	private void report(final String message) {
+		System.out.println(message);
+		if (messages != null) {
+			messages.add(message);
+		}
+	}
+
+	/**
+	 * @return the results read from the CSV, merged and ranked
+	 */
+	SortedMap<EventCategoryKey, List<CategoryResult>> computeResults()
+			throws IOException {
 		final var results = readRawResultsFromCsv();
 		//System.out.println(results.keySet());
 		mergeSpecialCategories(results);
 		fixRankAndDelta(results);
-		printResults(results);
-	}
-
-	private SortedMap<EventCategoryKey, List<CategoryResult>> readRawResultsFromCsv()
-			throws IOException, FileNotFoundException {
-		// manage headers: merge static ones with dynamic ones
-		final List<String> intermediatePointsHeaders = INTERMEDIATE_POINTS_CSV_HEADERS_PER_YEAR
-				.getOrDefault(currentYear, List.of());
-		final List<String> headers1 = Arrays.stream(CsvResultHeaders.values())
-				.map(h -> h.name()).toList();
-		final int splitIndex = CsvResultHeaders.RawTime.ordinal();
-		final String[] headers = Stream
-				.concat(Stream.concat(headers1.subList(0, splitIndex).stream(),
-						intermediatePointsHeaders.stream()),
-						headers1.subList(splitIndex, headers1.size()).stream())
-				.toArray(String[]::new);
-
-		// read CSV
-		try (final Reader in = new FileReader(resultsFromCrewTimerCsv)) {
-			final CSVFormat csvFormat = CSVFormat.DEFAULT.builder()
-					.setAllowMissingColumnNames(false).setSkipHeaderRecord(true)
-					.setNullString("").setHeader(headers).build();
-			final CSVParser parser = csvFormat.parse(in);
-			//System.out.println(parser.getHeaderNames());
-
-			final SortedMap<EventCategoryKey, List<CategoryResult>> results = new TreeMap<>();
-
-			// workaround a bug in CrewTimer CSV: the disqualified teams have no start time
-			String lastStart = null;
-			int line = 1;
-			for (final CSVRecord record : parser) {
-				final Function<CsvResultHeaders, String> getData = header -> normalize(
-						record.get(header));
-				//System.out.println(record);
-				if (record.size() != CsvResultHeaders.values().length
-						+ intermediatePointsHeaders.size()) {
-					throw new IOException(String.format(
-							"Inconsistent number of fields in CSV line %d (%s)%nCheck that data in %s is consistent"
-									+ " and/or class %s contains all header names",
-							++line,
-							record,
+		return results;
+	}
+
+	@VisibleForTesting
+	SortedMap<EventCategoryKey, List<CategoryResult>> readRawResultsFromCsv()
+			throws IOException {
+		return readRawResults((headerHandler, handler) -> csvEngine
+				.read(resultsFromCrewTimerCsv, headerHandler, handler));
+	}
+
+	/**
+	 * Same as {@link #readRawResultsFromCsv()}, but on a snapshot of the CSV
+	 * content.
+	 */
+	SortedMap<EventCategoryKey, List<CategoryResult>> readRawResults(
+			final byte[] content) throws IOException {
+		return readRawResults((headerHandler, handler) -> csvEngine
+				.read(content, headerHandler, handler));
+	}
+
+	@FunctionalInterface
+	private interface CsvSource {
+
+		void read(CsvEngine.RowHandler headerHandler,
+				CsvEngine.RowHandler handler) throws IOException;
+	}
+
+	private SortedMap<EventCategoryKey, List<CategoryResult>> readRawResults(
+			final CsvSource csvSource) throws IOException {
+		final SortedMap<EventCategoryKey, List<CategoryResult>> results = new TreeMap<>();
+
+		// columns detected from the header
+		final CsvSchema[] schema = { null };
+		// workaround a bug in CrewTimer CSV: the disqualified teams have no start time
+		final String[] lastStart = { null };
+		final int[] line = { 1 };
+		csvSource.read(header -> schema[0] = CsvSchema.of(header), record -> {
+			final CsvSchema s = schema[0];
+			//System.out.println(record);
+			if (record.size() != s.getNbColumns()) {
+				throw new IOException(String.format(
+						"Inconsistent number of fields in CSV line %d (%s)%nCheck that data in %s is consistent"
+								+ " with its header",
+						++line[0],
+						record,
+						resultsFromCrewTimerCsv));
+			}
+			String start = s.get(record, CsvResultHeaders.Start);
+			if (start == null) {
+				start = lastStart[0];
+			} else {
+				lastStart[0] = start;
+			}
+
+			// intermediate times
+			final int[] intermediateMillis = s.getIntermediateMillis(record);
+
+			// adjusted time computed from the penalties, checked against CrewTimer one
+			final String rawTime = s.get(record, CsvResultHeaders.RawTime);
+			final String penaltyCode = s.get(record,
+					CsvResultHeaders.PenaltyCode);
+			final String adjTime = computeAdjTime(rawTime,
+					penaltyCode,
+					s.get(record, CsvResultHeaders.AdjTime),
+					s.get(record, CsvResultHeaders.CrewAbbrev));
+
+			// test delta bouées
+			final var cr = new CategoryResult(
+					EventId.from(s.get(record, CsvResultHeaders.EventNum),
+							context),
+					s.get(record, CsvResultHeaders.Event),
+					s.getInteger(record, CsvResultHeaders.Place),
+					s.get(record, CsvResultHeaders.Crew),
+					s.get(record, CsvResultHeaders.CrewAbbrev),
+					s.get(record, CsvResultHeaders.Stroke), start,
+					s.getIntermediatePoints(), intermediateMillis,
+					s.get(record, CsvResultHeaders.Finish), rawTime,
+					penaltyCode, s.get(record, CsvResultHeaders.Delta),
+					adjTime);
+			// debug infos
+			//System.out.println(cr);
+			try {
+				results.computeIfAbsent(cr.getEventCategory(),
+						k -> new ArrayList<>()).add(cr);
+			} catch (final RuntimeException e) {
+				// add more context
+				System.err.printf("Error while parsing %s%n", cr);
+				throw e;
+			}
+		});
+		results.replaceAll((k, v) -> v.stream()
+				// Sorted by construction/CSVstructure. But to be sure we sort.
+				.sorted()
+				// Using immutable list to avoid undesired modifications
+				.toList());
+		return results;
+	}
+
+	/**
+	 * @return the adjusted time computed from the raw time and the penalties,
+	 *         or the one of CrewTimer if it cannot be computed (e.g. no raw
+	 *         time, unknown penalty code) or is the same
+	 */
+	private String computeAdjTime(final String rawTime,
+			final String penaltyCode, final String crewTimerAdjTime,
+			final String crewAbbrev) {
+		final String adjTime;
+		try {
+			adjTime = context.getPenaltyEngine().computeAdjTime(rawTime,
+					penaltyCode);
+		} catch (final IllegalArgumentException e) {
+			// e.g. new penalty label: CrewTimer knows better
+			report(String.format(
+					"Attention: pénalités '%s' de %s inconnues pour %d (%s), le temps ajusté %s de CrewTimer est utilisé",
+					penaltyCode,
+					crewAbbrev,
+					context.getYear(),
+					e.getMessage(),
+					crewTimerAdjTime));
+			return crewTimerAdjTime;
+		}
+		if (adjTime == null) {
+			return crewTimerAdjTime;
+		}
+		if (crewTimerAdjTime == null) {
+			return adjTime;
+		}
+		if (PenaltyEngine.isSameAdjTime(adjTime, crewTimerAdjTime)) {
+			// keep CrewTimer format
+			return crewTimerAdjTime;
+		}
+		report(String.format(
+				"Attention: le temps ajusté %s de %s ne correspond pas au temps brut %s avec les pénalités '%s', %s est utilisé",
+				crewTimerAdjTime,
+				crewAbbrev,
+				rawTime,
+				penaltyCode,
+				adjTime));
+		return adjTime;
+	}
+
+	/**
+	 * Prints the results, then prints them again each time the CSV changes.
+	 * Only the categories affected by a change are merged and ranked again.
+	 * Never returns unless interrupted.
+	 */
+	private void watchResults() throws InterruptedException {
+		final LiveResults liveResults = new LiveResults(this);
+		System.out.printf("Info: surveillance de %s%n", resultsFromCrewTimerCsv);
+		while (true) {
+			if (liveResults.hasFileChanged()) {
+				try {
+					final long startNanos = System.nanoTime();
+					final Set<EventCategoryKey> changedKeys = liveResults
+							.refresh();
+					if (!changedKeys.isEmpty()) {
+						printResults(liveResults.getResultTable());
+						System.out.printf(
+								"Info: %d catégorie(s) mise(s) à jour en %d ms%n",
+								changedKeys.size(),
+								TimeUnit.NANOSECONDS
+										.toMillis(System.nanoTime() - startNanos));
+					}
+				} catch (final IOException | RuntimeException e) {
+					// typically a file being written: retry at next poll
+					System.err.printf(
+							"Attention: lecture de %s impossible (%s), nouvel essai au prochain changement%n",
 							resultsFromCrewTimerCsv,
-							CsvResultHeaders.class.getSimpleName()));
+							e);
 				}
-				String start = getData.apply(CsvResultHeaders.Start);
-				if (start == null) {
-					start = lastStart;
-				} else {
-					lastStart = start;
+			}
+			Thread.sleep(watchInterval);
+		}
+	}
+
+	/**
+	 * Serves the results over HTTP (see {@link ResultsServer}), updating them
+	 * each time the CSV changes. Never returns unless interrupted.
+	 */
+	private void serveResults() throws IOException, InterruptedException {
+		final LiveResults liveResults = new LiveResults(this);
+		final ResultsServer server = new ResultsServer(this);
+		server.start(serverPort);
+		System.out.printf("Info: résultats de %s servis sur http://localhost:%d/%n",
+				resultsFromCrewTimerCsv,
+				server.getPort());
+		final Duration interval = watchInterval == null
+				? Duration.ofMillis(DEFAULT_WATCH_INTERVAL_MS)
+				: watchInterval;
+		try {
+			while (true) {
+				if (liveResults.hasFileChanged()) {
+					try {
+						final Set<EventCategoryKey> changedKeys = liveResults
+								.refresh();
+						if (!changedKeys.isEmpty()) {
+							server.update(liveResults, changedKeys);
+							System.out.printf(
+									"Info: %d catégorie(s) mise(s) à jour%n",
+									changedKeys.size());
+						}
+					} catch (final IOException | RuntimeException e) {
+						// typically a file being written: retry at next poll
+						System.err.printf(
+								"Attention: lecture de %s impossible (%s), nouvel essai au prochain changement%n",
+								resultsFromCrewTimerCsv,
+								e);
+					}
 				}
+				Thread.sleep(interval);
+			}
+		} finally {
+			server.stop();
+		}
+	}
 
-				// intermediate times
-				final Map<String, String> intermediateTimesByPoint = Collections
-						.unmodifiableMap(intermediatePointsHeaders.stream()
-								.collect(HashMap::new,
-										(m, v) -> m.put(v, record.get(v)),
-										HashMap::putAll));
-
-				// test delta bouées
-				final var cr = new CategoryResult(
-						EventId.from(getData.apply(CsvResultHeaders.EventNum)),
-						getData.apply(CsvResultHeaders.Event),
-						Optional.ofNullable(
-								getData.apply(CsvResultHeaders.Place))
-								.map(Integer::parseInt).orElse(null),
-						getData.apply(CsvResultHeaders.Crew),
-						getData.apply(CsvResultHeaders.CrewAbbrev),
-						getData.apply(CsvResultHeaders.Stroke), start,
-						intermediateTimesByPoint,
-						getData.apply(CsvResultHeaders.Finish),
-						getData.apply(CsvResultHeaders.Delta),
-						getData.apply(CsvResultHeaders.AdjTime));
-				// debug infos
-				//System.out.println(cr);
-				try {
-					results.computeIfAbsent(cr.getEventCategory(),
-							k -> new ArrayList<>()).add(cr);
-				} catch (final RuntimeException e) {
-					// add more context
-					System.err.printf("Error while parsing %s%n", cr);
-					throw e;
+	void fixRankAndDelta(
+			final SortedMap<EventCategoryKey, List<CategoryResult>> results) {
+		if (parallelism <= 1) {
+			for (final List<CategoryResult> crs : results.values()) {
+				fixRankAndDelta(crs).forEach(this::report);
+			}
+			return;
+		}
+		// categories are independent: rank them concurrently, but print the
+		// warnings in the category order, as in sequential mode
+		final List<List<String>> warnings = computeInParallel(
+				() -> results.values().parallelStream()
+						.map(LSM::fixRankAndDelta).toList());
+		warnings.forEach(w -> w.forEach(this::report));
+	}
+
+	/**
+	 * @return the result of the task, run in a pool of {@link #parallelism}
+	 *         threads (used by its parallel streams)
+	 */
+	private <T> T computeInParallel(final Callable<T> task) {
+		final ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			return pool.submit(task).get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof final RuntimeException cause) {
+				throw cause;
+			}
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Ranks a category and computes the deltas.
+	 *
+	 * @return the warnings to print
+	 */
+	private static List<String> fixRankAndDelta(
+			final List<CategoryResult> crs) {
+		List<String> warnings = List.of();
+		int nb = 0;
+		final int lastRank = 0;
+		final int lastFinish = 0;
+		int firstFinish = RaceTimes.NO_TIME;
+		for (final CategoryResult categoryResult : crs) {
+			nb++;
+			final int finishRaw = categoryResult.finishMillis;
+			int finish = RaceTimes.NO_TIME;
+			if (categoryResult.adjTimeMillis != RaceTimes.NO_TIME) {
+				if (categoryResult.startMillis == RaceTimes.NO_TIME) {
+					throw new IllegalArgumentException(
+							"No start time for " + categoryResult);
+				}
+				finish = RaceTimes.plus(categoryResult.startMillis,
+						categoryResult.adjTimeMillis);
+				if (finishRaw != RaceTimes.NO_TIME && finishRaw != finish) {
+					if (warnings.isEmpty()) {
+						warnings = new ArrayList<>();
+					}
+					warnings.add(String.format(
+							"Attention: la fin %s ne correspond pas à la fin ajustée %s (%s)",
+							RaceTimes.formatTimeOfDay(finishRaw),
+							RaceTimes.formatTimeOfDay(finish),
+							categoryResult));
 				}
 			}
-			results.replaceAll((k, v) -> v.stream()
-					// Sorted by construction/CSVstructure. But to be sure we sort.
-					.sorted()
-					// Using immutable list to avoid undesired modifications
-					.toList());
-			return results;
+			if (firstFinish == RaceTimes.NO_TIME) {
+				firstFinish = finish;
+				categoryResult.deltaMillis = RaceTimes.NO_TIME;
+			} else if (finish == RaceTimes.NO_TIME) {
+				// typically a DNS: do nothing
+			} else {
+				// adapt delta compared to first
+				categoryResult.deltaMillis = finish - firstFinish;
+			}
+			// compute rank in category
+			if (finish == RaceTimes.NO_TIME || finish == lastFinish) {
+				// equality
+				categoryResult.categoryRank = lastRank;
+			} else {
+				// next rank
+				categoryResult.categoryRank = nb;
+			}
 		}
+		return warnings;
 	}
 
-	private void fixRankAndDelta(
+	void printResults(
 			final SortedMap<EventCategoryKey, List<CategoryResult>> results) {
-		for (final List<CategoryResult> crs : results.values()) {
-			int nb = 0;
-			final int lastRank = 0;
-			final LocalTime lastFinish = LocalTime.MIN;
-			LocalTime firstFinish = null;
-			for (final CategoryResult categoryResult : crs) {
-				nb++;
-				LocalTime finishRaw = null;
-				if (StringUtil.isNotBlank(categoryResult.finish)) {
-					finishRaw = LocalTime.parse(categoryResult.finish);
+		printResults(ResultTable.of(results));
+	}
+
+	void printResults(final ResultTable results) {
+		if (printModes.size() == 1) {
+			print(results, printModes.get(0).buildHelper(this));
+			return;
+		}
+		// each slow mode runs on its own thread, fed through a queue by its
+		// own producer, so that the workbooks are written concurrently and
+		// the fast modes printed meanwhile are not held up
+		final List<AsyncPrintHelper> asyncHelpers = new ArrayList<>();
+		final List<Future<?>> feeds = new ArrayList<>();
+		try (ExecutorService producers = Executors
+				.newVirtualThreadPerTaskExecutor()) {
+			try {
+				for (final PrintMode mode : printModes) {
+					if (mode.isSlow()) {
+						final AsyncPrintHelper asyncHelper = new AsyncPrintHelper(
+								mode.buildHelper(this), "print-" + mode);
+						asyncHelpers.add(asyncHelper);
+						feeds.add(producers
+								.submit(() -> print(results, asyncHelper)));
+					}
 				}
-				LocalTime finish = null;
-				if (StringUtil.isNotBlank(categoryResult.adjTime)
-						&& !categoryResult.adjTime.equals("DNS")
-						&& !categoryResult.adjTime.equals("DNF")) {
-					finish = LocalTime.parse(categoryResult.start)
-							.plus(parseDuration(categoryResult.adjTime));
-					if (finishRaw != null && !finishRaw.equals(finish)) {
-						System.out.printf(
-								"Attention: la fin %s ne correspond pas à la fin ajustée %s (%s)%n",
-								finishRaw,
-								finish,
-								categoryResult);
+				for (final PrintMode mode : printModes) {
+					if (!mode.isSlow()) {
+						print(results, mode.buildHelper(this));
 					}
 				}
-				if (firstFinish == null) {
-					firstFinish = finish;
-					categoryResult.delta = null;
-				} else if (finish == null) {
-					// typically a DNS: do nothing
-				} else {
-					// adapt delta compared to first
-					final Duration delta = Duration.between(firstFinish,
-							finish);
-					final LocalTime deltaLT = LocalTime.MIN.plus(delta);
-					categoryResult.delta = deltaLT.format(DELTA_FORMATTER);
+			} finally {
+				RuntimeException failure = null;
+				for (final Future<?> feed : feeds) {
+					try {
+						feed.get();
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+						failure = addFailure(failure,
+								new IllegalStateException(e));
+					} catch (final ExecutionException e) {
+						failure = addFailure(failure,
+								e.getCause() instanceof final RuntimeException cause
+										? cause
+										: new IllegalStateException(
+												e.getCause()));
+					}
 				}
-				// compute rank in category
-				if (finish == null || finish.compareTo(lastFinish) == 0) {
-					// equality
-					categoryResult.categoryRank = lastRank;
-				} else {
-					// next rank
-					categoryResult.categoryRank = nb;
+				for (final AsyncPrintHelper asyncHelper : asyncHelpers) {
+					try {
+						asyncHelper.close();
+					} catch (final RuntimeException e) {
+						failure = addFailure(failure, e);
+					}
+				}
+				if (failure != null) {
+					throw failure;
 				}
 			}
 		}
 	}
 
-	// TODO add unit test
-	@VisibleForTesting
-	static Duration parseDuration(final String time) {
-		final Matcher matcher = Pattern.compile(
-				"(?:([0-9]+):)?([0-9]{1,2}):([0-9]{2})(?:.([0-9]{1,3}))?")
-				.matcher(time);
-		if (!matcher.matches()) {
-			throw new IllegalArgumentException(
-					"Time " + time + " is not a valide time representation");
+	/**
+	 * @return the first failure, the other ones being suppressed by it
+	 */
+	private static RuntimeException addFailure(final RuntimeException failure,
+			final RuntimeException e) {
+		if (failure == null) {
+			return e;
 		}
-		Duration duration = Duration.ofMinutes(Long.parseLong(matcher.group(2)))
-				.plus(Duration.ofSeconds(Long.parseLong(matcher.group(3))));
-
-		final String groupHours = matcher.group(1);
-		if (StringUtils.isNotEmpty(groupHours)) {
-			duration = duration
-					.plus(Duration.ofHours(Long.parseLong(groupHours)));
+		// e.g. the failure of a helper, rethrown to its producer then by close()
+		if (failure != e) {
+			failure.addSuppressed(e);
 		}
+		return failure;
+	}
 
-		String groupMillis = matcher.group(4);
-		if (StringUtils.isNotEmpty(groupMillis)) {
-			while (groupMillis.length() < 3) {
-				groupMillis += "0";
+	/**
+	 * Prints the results with a helper: the sub-results, then the
+	 * leaderboards.
+	 */
+	private void print(final ResultTable results,
+			final PrintHelper printHelper) {
+		final List<SubResult> subResults = new ArrayList<>(
+				printHelper.getSubResults(results));
+		if (leaderboardSize > 0) {
+			subResults.add(printHelper.getLeaderboardSubResult(Leaderboard
+					.compute(results, handicapFactors, leaderboardSize)));
+		}
+		if (parallelism > 1 && subResults.size() > 1) {
+			// prepare the rows of the sub-results (e.g. sheets) concurrently,
+			// then print them in order
+			final List<PrintModel> models = computeInParallel(
+					() -> subResults.parallelStream().map(subResult -> {
+						final PrintModel model = new PrintModel(printHelper);
+						printSubResult(subResult, model);
+						return model;
+					}).toList());
+			for (int i = 0; i < subResults.size(); i++) {
+				final SubResult subResult = subResults.get(i);
+				subResult.init();
+				models.get(i).replay();
+				subResult.end();
+			}
+		} else {
+			for (final SubResult subResult : subResults) {
+				subResult.init();
+				printSubResult(subResult, printHelper);
+				subResult.end();
 			}
-			duration = duration
-					.plus(Duration.ofMillis(Long.parseLong(groupMillis)));
 		}
 
-		return duration;
+		printHelper.end();
 	}
 
-	private void printResults(
-			final SortedMap<EventCategoryKey, List<CategoryResult>> results) {
-		final PrintHelper printHelper = printMode.buildHelper(this);
-		for (final SubResult subResult : printHelper.getSubResults(results)) {
-			subResult.init();
-			final SortedMap<EventCategoryKey, List<CategoryResult>> results2 = subResult
-					.getResults();
-			//System.out.println(results2.size());
-			printResults(results2, printHelper);
-			subResult.end();
-		}
-
-		printHelper.end();
+	private void printSubResult(final SubResult subResult,
+			final RowPrinter printer) {
+		final ResultTable results2 = subResult.getResults();
+		//System.out.println(results2.getNbBlocks());
+		printResults(results2, printer);
+		printLeaderboards(subResult.getLeaderboards(), printer);
 	}
 
-	private void printResults(
-			final SortedMap<EventCategoryKey, List<CategoryResult>> results,
-			final PrintHelper printHelper) {
-		for (final Entry<EventCategoryKey, List<CategoryResult>> entry : results
-				.entrySet()) {
-			final List<CategoryResult> resCat = entry.getValue();
+	/**
+	 * Prints the blocks of the results (without the leaderboards).
+	 */
+	void printResults(final ResultTable results,
+			final RowPrinter printer) {
+		final List<String> legs = splits ? results.getLegs() : List.of();
+		for (int block = 0; block < results.getNbBlocks(); block++) {
+			final int firstRow = results.getBlockStart(block);
 
 			// race header
-			final EventCategoryKey res = entry.getKey();
-			final LsmEventCategory lsmEventCategory = LsmEventCategory
-					.parse(res.category());
+			final EventCategoryKey res = results.getKey(block);
+			final LsmEventCategory lsmEventCategory = res.category();
 			//System.out.printf("-----%nevent category key: %s%n", res);
 			String extraSwissChampionship = "";
 			if (lsmEventCategory.swissChampionship()) {
 				extraSwissChampionship = " 🏆🇨🇭";
 			}
-			printHelper.printRaceHeader(toStandardCategory(lsmEventCategory)
+			printer.printRaceHeader(toStandardCategory(lsmEventCategory)
 					+ extraSwissChampionship + " (course " + res.event() + ", "
-					+ getStartTime(resCat.get(0).start) + ")");
+					+ getStartTime(results.getStart(firstRow),
+							results.getStartMillis(firstRow))
+					+ ")", legs);
 
 			// race results
-			final int nbMedals = getNbMedals(resCat.size(),
+			final int nbMedals = getNbMedals(results.getBlockSize(block),
 					lsmEventCategory.swissChampionship());
-			for (final CategoryResult cr : resCat) {
-				final String medals = getMedal(cr.categoryRank, nbMedals);
-				printHelper.printResultRow(cr.categoryRank,
+			for (int row = firstRow; row < results.getBlockEnd(block); row++) {
+				final int categoryRank = results.getCategoryRank(row);
+				final String medals = getMedal(categoryRank, nbMedals);
+				printer.printResultRow(categoryRank,
 						medals,
-						cr.crewAbbrev,
-						cr.crew,
-						cr.adjTime,
-						cr.delta);
+						results.getCrewAbbrev(row),
+						results.getCrew(row),
+						results.getAdjTime(row),
+						results.getDeltaMillis(row),
+						getSplits(results, row, legs.size()));
 			}
-			printHelper.printRaceFooter();
+			printer.printRaceFooter();
 		}
 	}
 
-	private String getStartTime(final String start) {
+	private static void printLeaderboards(final List<Leaderboard> leaderboards,
+			final RowPrinter printer) {
+		for (final Leaderboard leaderboard : leaderboards) {
+			printer.printRaceHeader(
+					leaderboard.getTitle() + " (temps compensés)",
+					List.of());
+			final ResultTable results = leaderboard.getResults();
+			for (int position = 0; position < leaderboard
+					.size(); position++) {
+				final int row = leaderboard.getRow(position);
+				printer.printResultRow(leaderboard.getRank(position),
+						"",
+						results.getCrewAbbrev(row),
+						results.getCrew(row) + " ("
+								+ LsmEventCategory.fromCode(
+										results.getCategoryCode(row))
+								+ ")",
+						RaceTimes.formatSplit(
+								leaderboard.getCorrectedMillis(position)),
+						leaderboard.getGapMillis(position),
+						List.of());
+			}
+			printer.printRaceFooter();
+		}
+	}
+
+	private static List<String> getSplits(final ResultTable results,
+			final int row, final int nbLegs) {
+		if (nbLegs == 0) {
+			return List.of();
+		}
+		final String[] res = new String[nbLegs];
+		for (int leg = 0; leg < nbLegs; leg++) {
+			res[leg] = SplitEngine.format(results.getLegMillis(row, leg),
+					results.getLegRank(row, leg),
+					results.getGapMillis(row, leg));
+		}
+		return Arrays.asList(res);
+	}
+
+	private String getStartTime(final String start, final int startMillis) {
 		if (start == null) {
 			return "<startTime>";
 		}
 		if (start.equals("DNS")) {
 			return start;
 		}
-		LocalTime time = LocalTime.parse(start);
+		LocalTime time = RaceTimes.toLocalTime(startMillis);
 		int minute = time.getMinute();
 		minute = ((int) Math.round(minute / 5.0)) * 5;
 		if (minute == 60) {
@@ -368,25 +890,51 @@ public class LSM {
 		return res.substring(0, res.length() - 1);
 	}
 
-	// duplicate/merge some special categories to have correct result
-	private void mergeSpecialCategories(
+	/**
+	 * Categories of the races having the same emoji, used to find the
+	 * standard category of a Swiss championship category.
+	 */
+	private record RaceCategory(String emoji, LsmEventCategory category) {
+
+		static RaceCategory of(final EventCategoryKey key) {
+			return new RaceCategory(key.event().emoji(), key.category());
+		}
+	}
+
+	// duplicate/merge some special categories to have correct result;
+	// increment ResultSnapshot.SCHEMA_VERSION when changing these rules
+	void mergeSpecialCategories(
 			final SortedMap<EventCategoryKey, List<CategoryResult>> results) {
 		// copy since modified
 		final TreeSet<Entry<EventCategoryKey, List<CategoryResult>>> entrySet = new TreeSet<>(
 				Entry.comparingByKey());
 		entrySet.addAll(results.entrySet());
+		// keys of results by race category, kept up to date by the merges;
+		// only the categories written as their canonical name are found
+		final Map<RaceCategory, List<EventCategoryKey>> keysByRaceCategory = new HashMap<>();
+		for (final EventCategoryKey key : results.keySet()) {
+			if (!key.hasCanonicalName()) {
+				continue;
+			}
+			keysByRaceCategory
+					.computeIfAbsent(RaceCategory.of(key),
+							k -> new ArrayList<>(1))
+					.add(key);
+		}
 		for (final Entry<EventCategoryKey, List<CategoryResult>> entry : entrySet) {
 			final EventCategoryKey eventCategoryKey = entry.getKey();
 			//System.out.printf("Processing %s%n", eventCategoryKey);
-			final LsmEventCategory lsmEventCategory = LsmEventCategory
-					.parse(eventCategoryKey.category());
+			final LsmEventCategory lsmEventCategory = eventCategoryKey
+					.category();
 
 			mergeSwissChampionshipCategoryResultsIntoStandardOnes(results,
+					keysByRaceCategory,
 					eventCategoryKey,
 					lsmEventCategory,
 					entry.getValue());
 
 			mergeMasterCategoryIntoStandardCategoryForOpen(results,
+					keysByRaceCategory,
 					eventCategoryKey,
 					lsmEventCategory,
 					entry.getValue());
@@ -398,45 +946,43 @@ public class LSM {
 
 	private void mergeSwissChampionshipCategoryResultsIntoStandardOnes(
 			final SortedMap<EventCategoryKey, List<CategoryResult>> results,
+			final Map<RaceCategory, List<EventCategoryKey>> keysByRaceCategory,
 			final EventCategoryKey eventCategoryKey,
 			final LsmEventCategory lsmEventCategory,
 			final List<CategoryResult> categoryResultsBase) {
 		// FIXME handle case of masters that should be merged too, but only for CH champ categories ?!?
 		if (lsmEventCategory.swissChampionship()) {
 			// add it to the corresponding non-swiss championship category
-			final String standardCategory = toStandardCategory(
-					lsmEventCategory);
-			final List<Entry<EventCategoryKey, List<CategoryResult>>> standardRes = results
-					.entrySet().stream().filter(e -> {
-						final EventCategoryKey key = e.getKey();
-						return standardCategory.equals(key.category())
-								&& Objects.equals(
-										eventCategoryKey.event().emoji(),
-										key.event().emoji());
-					}).toList();
+			final LsmEventCategory standardCategory = lsmEventCategory
+					.withSwissChampionship(false);
+			final RaceCategory standardRaceCategory = new RaceCategory(
+					eventCategoryKey.event().emoji(), standardCategory);
+			final List<EventCategoryKey> standardRes = keysByRaceCategory
+					.getOrDefault(standardRaceCategory, List.of());
 			final List<CategoryResult> crs;
 			final EventCategoryKey eckToUse;
 			if (standardRes.isEmpty()) {
-				System.out.printf(
-						"Info: aucune catégorie standard trouvée pour '%s'%n",
-						eventCategoryKey.category());
+				report(String.format(
+						"Info: aucune catégorie standard trouvée pour '%s'",
+						eventCategoryKey.rawCategory()));
 				// create corresponding category
-				eckToUse = new EventCategoryKey(eventCategoryKey.event(),
-						standardCategory);
+				eckToUse = eventCategoryKey.withCategory(standardCategory);
 				crs = List.of();
+				keysByRaceCategory
+						.computeIfAbsent(standardRaceCategory,
+								k -> new ArrayList<>(1))
+						.add(eckToUse);
 			} else if (standardRes.size() > 1) {
 				throw new RuntimeException("Found " + standardRes.size()
 						+ " results while expecting only one for "
 						+ eventCategoryKey);
 			} else {
-				final Entry<EventCategoryKey, List<CategoryResult>> entry2 = standardRes
-						.get(0);
-				eckToUse = entry2.getKey();
-				crs = entry2.getValue();
-				System.out.printf(
-						"Info: fusion de la catégorie '%s' dans la catégorie standard '%s'%n",
-						eventCategoryKey.category(),
-						eckToUse.category());
+				eckToUse = standardRes.get(0);
+				crs = results.get(eckToUse);
+				report(String.format(
+						"Info: fusion de la catégorie '%s' dans la catégorie standard '%s'",
+						eventCategoryKey.rawCategory(),
+						eckToUse.rawCategory()));
 			}
 			// we need to (deep-)copy each value since they will be modified
 			final List<CategoryResult> categoryResults = Stream
@@ -454,6 +1000,7 @@ public class LSM {
 	// La clé des courses fusionnées est celle de la course sans Master
 	private void mergeMasterCategoryIntoStandardCategoryForOpen(
 			final SortedMap<EventCategoryKey, List<CategoryResult>> results,
+			final Map<RaceCategory, List<EventCategoryKey>> keysByRaceCategory,
 			final EventCategoryKey eventCategoryKey,
 			final LsmEventCategory lsmEventCategory,
 			final List<CategoryResult> categoryResults) {
@@ -462,18 +1009,17 @@ public class LSM {
 					.withAgeCategory(AgeCategory.SENIOR);
 			if (!mergedLsmEventCategory.equals(lsmEventCategory)) {
 				// create corresponding standard category
-				final EventCategoryKey seniorCategoryKey = new EventCategoryKey(
-						eventCategoryKey.event(),
-						mergedLsmEventCategory.toString());
+				final EventCategoryKey seniorCategoryKey = eventCategoryKey
+						.withCategory(mergedLsmEventCategory);
 
 				// merge only if both master and standard age category exists
 				final List<CategoryResult> standardCategoryResults = results
 						.get(seniorCategoryKey);
 				if (standardCategoryResults != null) {
-					System.out.printf(
-							"Info: fusion de la catégorie '%s' dans '%s'%n",
+					report(String.format(
+							"Info: fusion de la catégorie '%s' dans '%s'",
 							lsmEventCategory,
-							mergedLsmEventCategory);
+							mergedLsmEventCategory));
 					final List<CategoryResult> mergedResults = Stream
 							.concat(standardCategoryResults.stream(),
 									categoryResults.stream())
@@ -484,11 +1030,16 @@ public class LSM {
 					results.put(seniorCategoryKey, mergedResults);
 					// removal duplicate entry due to copy
 					results.remove(eventCategoryKey);
+					final List<EventCategoryKey> keys = keysByRaceCategory
+							.get(RaceCategory.of(eventCategoryKey));
+					if (keys != null) {
+						keys.remove(eventCategoryKey);
+					}
 				} else {
-					System.out.printf(
-							"Info: pas de fusion de la catégorie '%s' dans '%s' puisque la catégorie senior n'existe pas%n",
+					report(String.format(
+							"Info: pas de fusion de la catégorie '%s' dans '%s' puisque la catégorie senior n'existe pas",
 							lsmEventCategory,
-							mergedLsmEventCategory);
+							mergedLsmEventCategory));
 				}
 			}
 		}
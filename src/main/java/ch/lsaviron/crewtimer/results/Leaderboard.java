@@ -0,0 +1,202 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import ch.lsaviron.crewtimer.results.EventId.Race;
+
+/**
+ * Overall leaderboard across the categories of a race, or of all the races of
+ * the day: the best times corrected by {@link HandicapFactors}, referring to
+ * rows of a {@link ResultTable}.
+ * <p>
+ * The best times are selected with a bounded heap in a single pass over the
+ * rows, so that only the top of each leaderboard is sorted.
+ *
+ * @author Jean-David Maillefer
+ */
+final class Leaderboard {
+
+	private final String title;
+
+	private final ResultTable results;
+
+	/** Rows of {@link #results}, best corrected time first. */
+	private final int[] rows;
+
+	private final int[] correctedMillis;
+
+	private Leaderboard(final String title, final ResultTable results,
+			final long[] sortedKeys) {
+		this.title = title;
+		this.results = results;
+		rows = new int[sortedKeys.length];
+		correctedMillis = new int[sortedKeys.length];
+		for (int i = 0; i < sortedKeys.length; i++) {
+			rows[i] = (int) sortedKeys[i];
+			correctedMillis[i] = (int) (sortedKeys[i] >>> 32);
+		}
+	}
+
+	/**
+	 * Computes a leaderboard per race, then one for the day if there are
+	 * several races (or events without race). The Swiss championship
+	 * categories are ignored since their crews are also in the standard ones.
+	 *
+	 * @param size
+	 *            maximum number of crews of each leaderboard
+	 */
+	static List<Leaderboard> compute(final ResultTable results,
+			final HandicapFactors factors, final int size) {
+		final Map<Race, TopK> topByRace = new EnumMap<>(Race.class);
+		final TopK topOfDay = new TopK(size);
+		boolean withoutRace = false;
+		for (int block = 0; block < results.getNbBlocks(); block++) {
+			final EventCategoryKey key = results.getKey(block);
+			if (key.category().swissChampionship()) {
+				continue;
+			}
+			final Race race = key.event().race();
+			final TopK topOfRace;
+			if (race == null) {
+				withoutRace = true;
+				topOfRace = null;
+			} else {
+				topOfRace = topByRace.computeIfAbsent(race,
+						r -> new TopK(size));
+			}
+			for (int row = results.getBlockStart(block); row < results
+					.getBlockEnd(block); row++) {
+				final int corrected = factors.correct(
+						results.getAdjTimeMillis(row),
+						results.getCategoryCode(row));
+				if (corrected == RaceTimes.NO_TIME) {
+					continue;
+				}
+				// corrected time in the high bits: orders by time, then row
+				final long sortKey = (long) corrected << 32 | row;
+				topOfDay.offer(sortKey);
+				if (topOfRace != null) {
+					topOfRace.offer(sortKey);
+				}
+			}
+		}
+
+		final List<Leaderboard> res = new ArrayList<>();
+		for (final Entry<Race, TopK> entry : topByRace.entrySet()) {
+			res.add(new Leaderboard(
+					"Classement général, course " + entry.getKey().getEmoji(),
+					results, entry.getValue().toSortedArray()));
+		}
+		if (topByRace.size() != 1 || withoutRace) {
+			res.add(new Leaderboard("Classement général de la journée",
+					results, topOfDay.toSortedArray()));
+		}
+		return res;
+	}
+
+	String getTitle() {
+		return title;
+	}
+
+	ResultTable getResults() {
+		return results;
+	}
+
+	int size() {
+		return rows.length;
+	}
+
+	/**
+	 * @return the row in {@link #getResults()} of the given position
+	 */
+	int getRow(final int position) {
+		return rows[position];
+	}
+
+	int getCorrectedMillis(final int position) {
+		return correctedMillis[position];
+	}
+
+	/**
+	 * @return the rank of the given position, equal corrected times having the
+	 *         same rank
+	 */
+	int getRank(final int position) {
+		int first = position;
+		while (first > 0
+				&& correctedMillis[first - 1] == correctedMillis[position]) {
+			first--;
+		}
+		return first + 1;
+	}
+
+	/**
+	 * @return the gap to the first, {@link RaceTimes#NO_TIME} for the first
+	 */
+	int getGapMillis(final int position) {
+		if (position == 0) {
+			return RaceTimes.NO_TIME;
+		}
+		return correctedMillis[position] - correctedMillis[0];
+	}
+
+	/**
+	 * Keeps the {@code k} smallest keys offered, in a max-heap.
+	 */
+	private static final class TopK {
+
+		private final long[] heap;
+
+		private int size;
+
+		TopK(final int k) {
+			heap = new long[k];
+		}
+
+		void offer(final long key) {
+			if (size < heap.length) {
+				// sift up
+				int i = size++;
+				while (i > 0) {
+					final int parent = (i - 1) >>> 1;
+					if (heap[parent] >= key) {
+						break;
+					}
+					heap[i] = heap[parent];
+					i = parent;
+				}
+				heap[i] = key;
+			} else if (size > 0 && key < heap[0]) {
+				// replace the greatest, then sift down
+				int i = 0;
+				while (true) {
+					int child = 2 * i + 1;
+					if (child >= size) {
+						break;
+					}
+					if (child + 1 < size && heap[child + 1] > heap[child]) {
+						child++;
+					}
+					if (heap[child] <= key) {
+						break;
+					}
+					heap[i] = heap[child];
+					i = child;
+				}
+				heap[i] = key;
+			}
+		}
+
+		long[] toSortedArray() {
+			final long[] res = Arrays.copyOf(heap, size);
+			Arrays.sort(res);
+			return res;
+		}
+	}
+
+}
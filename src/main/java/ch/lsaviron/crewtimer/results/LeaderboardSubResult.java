@@ -0,0 +1,27 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.util.List;
+
+record LeaderboardSubResult(List<Leaderboard> leaderboards)
+		implements SubResult {
+
+	@Override
+	public void init() {
+		// default: nothing to do
+	}
+
+	@Override
+	public void end() {
+		// default: nothing to do
+	}
+
+	@Override
+	public ResultTable getResults() {
+		return ResultTable.EMPTY;
+	}
+
+	@Override
+	public List<Leaderboard> getLeaderboards() {
+		return leaderboards;
+	}
+}
@@ -0,0 +1,449 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+import ch.lsaviron.lsm.LsmEventCategory;
+import ch.lsaviron.swissrowing.AgeCategory;
+
+/**
+ * In-memory results of a CrewTimer CSV being updated during the regatta. On
+ * each {@link #refresh()}, only the categories whose rows changed are merged
+ * and ranked again.
+ * <p>
+ * A trailing record not yet fully written is ignored until it is complete.
+ * <p>
+ * Jury corrections (adjusted time, penalty, status) may be applied on top of
+ * the file: only the categories of the corrected event are ranked again,
+ * including the merged open and Swiss championship categories.
+ *
+ * @author Jean-David Maillefer
+ */
+final class LiveResults {
+
+	/**
+	 * Set of raw categories that may be merged together by
+	 * {@link LSM#mergeSpecialCategories(SortedMap)}: Swiss championship
+	 * categories are merged into the standard category of the same race and
+	 * the open master categories into the senior ones.
+	 */
+	record MergeGroup(String emoji, LsmEventCategory standardCategory) {
+
+		static MergeGroup of(final EventCategoryKey key) {
+			LsmEventCategory category = key.category();
+			if (category.open()) {
+				category = category.withAgeCategory(AgeCategory.SENIOR);
+			}
+			return new MergeGroup(key.event().emoji(),
+					category.withSwissChampionship(false));
+		}
+	}
+
+	/** A crew in an event. */
+	record CrewKey(EventId event, String crewAbbrev) {
+
+		static CrewKey of(final CategoryResult cr) {
+			return new CrewKey(cr.event, cr.crewAbbrev);
+		}
+	}
+
+	private final LSM lsm;
+
+	private final Path file;
+
+	private final SortedMap<EventCategoryKey, List<CategoryResult>> results = new TreeMap<>();
+
+	/** Table of the results, only the changed categories being encoded. */
+	private final ResultTable.Builder tableBuilder = new ResultTable.Builder();
+
+	/**
+	 * Rows of each group, as read from the file. Never modified: the
+	 * corrections are always applied on top of them.
+	 */
+	private Map<MergeGroup, SortedMap<EventCategoryKey, List<CategoryResult>>> fileResultsByGroup = Map
+			.of();
+
+	/**
+	 * Rows of each group, corrections applied, before any merge or ranking.
+	 * Never modified: merge and ranking work on copies.
+	 */
+	private Map<MergeGroup, SortedMap<EventCategoryKey, List<CategoryResult>>> rawResultsByGroup = Map
+			.of();
+
+	/** Keys of the merged and ranked results of each group. */
+	private final Map<MergeGroup, Set<EventCategoryKey>> keysByGroup = new HashMap<>();
+
+	private Map<EventId, Set<MergeGroup>> groupsByEvent = Map.of();
+
+	/** Fingerprint of the raw rows of each group merged and ranked. */
+	private final Map<MergeGroup, List<String>> rowsByGroup = new HashMap<>();
+
+	/** Jury corrections, applied in order, on top of the file content. */
+	private final Map<CrewKey, List<UnaryOperator<CategoryResult>>> corrections = new HashMap<>();
+
+	private BasicFileAttributes lastAttributes;
+
+	LiveResults(final LSM lsm) {
+		this.lsm = lsm;
+		file = Path.of(lsm.resultsFromCrewTimerCsv);
+	}
+
+	/**
+	 * @return {@code true} if the file changed since the previous call
+	 */
+	boolean hasFileChanged() {
+		final BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(file, BasicFileAttributes.class);
+		} catch (final IOException e) {
+			// file being replaced: will be seen at next call
+			return false;
+		}
+		final boolean changed = lastAttributes == null
+				|| !attributes.lastModifiedTime()
+						.equals(lastAttributes.lastModifiedTime())
+				|| attributes.size() != lastAttributes.size();
+		lastAttributes = attributes;
+		return changed;
+	}
+
+	/**
+	 * Reads the file again and updates the categories having changed.
+	 *
+	 * @return the keys of the categories added, updated or removed
+	 */
+	SortedSet<EventCategoryKey> refresh() throws IOException {
+		return refresh(Files.readAllBytes(file));
+	}
+
+	SortedSet<EventCategoryKey> refresh(final byte[] content)
+			throws IOException {
+		final SortedMap<EventCategoryKey, List<CategoryResult>> rawResults = lsm
+				.readRawResults(getCompleteLines(content));
+
+		// group the raw results
+		final Map<MergeGroup, SortedMap<EventCategoryKey, List<CategoryResult>>> newRawResultsByGroup = new LinkedHashMap<>();
+		final Map<EventId, Set<MergeGroup>> newGroupsByEvent = new HashMap<>();
+		for (final Entry<EventCategoryKey, List<CategoryResult>> entry : rawResults
+				.entrySet()) {
+			final MergeGroup group = MergeGroup.of(entry.getKey());
+			newRawResultsByGroup.computeIfAbsent(group, k -> new TreeMap<>())
+					.put(entry.getKey(), entry.getValue());
+			newGroupsByEvent
+					.computeIfAbsent(entry.getKey().event(),
+							k -> new LinkedHashSet<>())
+					.add(group);
+		}
+		// in the order of the file, then the groups removed
+		final Set<MergeGroup> groups = new LinkedHashSet<>(
+				newRawResultsByGroup.keySet());
+		groups.addAll(rowsByGroup.keySet());
+		fileResultsByGroup = newRawResultsByGroup;
+		rawResultsByGroup = new LinkedHashMap<>(newRawResultsByGroup);
+		groupsByEvent = newGroupsByEvent;
+
+		// corrections are not in the file: apply them again
+		corrections.keySet().stream().map(CrewKey::event).distinct()
+				.forEach(this::applyCorrections);
+
+		return update(groups);
+	}
+
+	/**
+	 * Sets the adjusted time of a crew, e.g. after a finish time was fixed.
+	 *
+	 * @param adjTime
+	 *            the adjusted time, as in CrewTimer CSV (e.g.
+	 *            {@code 34:36.657})
+	 * @return the keys of the categories updated
+	 */
+	SortedSet<EventCategoryKey> correctAdjTime(final EventId event,
+			final String crewAbbrev, final String adjTime) {
+		// fail fast on invalid time
+		RaceTimes.parseMillis(adjTime);
+		return correct(new CrewKey(event, crewAbbrev),
+				cr -> cr.withAdjTime(adjTime));
+	}
+
+	/**
+	 * Adds a penalty to the adjusted time of a crew.
+	 *
+	 * @return the keys of the categories updated
+	 */
+	SortedSet<EventCategoryKey> addPenalty(final EventId event,
+			final String crewAbbrev, final Duration penalty) {
+		final int penaltyMillis = Math.toIntExact(penalty.toMillis());
+		return correct(new CrewKey(event, crewAbbrev), cr -> {
+			if (cr.adjTimeMillis == RaceTimes.NO_TIME) {
+				// DNS, DNF: nothing to penalize
+				return cr;
+			}
+			return cr.withAdjTime(
+					RaceTimes.formatDuration(cr.adjTimeMillis + penaltyMillis));
+		});
+	}
+
+	/**
+	 * Adds a penalty code to a crew, its adjusted time being computed again
+	 * from its raw time (see {@link PenaltyEngine}).
+	 *
+	 * @param penaltyCode
+	 *            e.g. {@code Faux-départ}, {@code Interférence(30s)} or
+	 *            {@code DQ}
+	 * @return the keys of the categories updated
+	 */
+	SortedSet<EventCategoryKey> addPenaltyCode(final EventId event,
+			final String crewAbbrev, final String penaltyCode) {
+		final PenaltyEngine penaltyEngine = lsm.getContext()
+				.getPenaltyEngine();
+		// fail fast on unknown code
+		penaltyEngine.getPenaltyMillis(penaltyCode);
+		return correct(new CrewKey(event, crewAbbrev), cr -> {
+			final String penaltyCodes = cr.penaltyCode == null ? penaltyCode
+					: cr.penaltyCode + "," + penaltyCode;
+			final String adjTime = penaltyEngine.computeAdjTime(cr.rawTime,
+					penaltyCodes);
+			if (adjTime == null) {
+				// no raw time (e.g. DNS): nothing to penalize
+				return cr;
+			}
+			return cr.withPenaltyCode(penaltyCodes, adjTime);
+		});
+	}
+
+	/**
+	 * Sets the status of a crew instead of its adjusted time.
+	 *
+	 * @param status
+	 *            {@code DNS}, {@code DNF}, {@code DQ} or {@code DSQ} (see
+	 *            {@link RaceTimes#isStatus(String)})
+	 * @return the keys of the categories updated
+	 */
+	SortedSet<EventCategoryKey> setStatus(final EventId event,
+			final String crewAbbrev, final String status) {
+		if (!RaceTimes.isStatus(status)) {
+			throw new IllegalArgumentException(
+					"Status " + status + " is not a known status");
+		}
+		return correct(new CrewKey(event, crewAbbrev),
+				cr -> cr.withAdjTime(status));
+	}
+
+	/**
+	 * Only the groups of the corrected event are merged and ranked again.
+	 */
+	private SortedSet<EventCategoryKey> correct(final CrewKey crewKey,
+			final UnaryOperator<CategoryResult> correction) {
+		final Set<MergeGroup> groups = groupsByEvent.get(crewKey.event());
+		if (groups == null || groups.stream()
+				.flatMap(g -> rawResultsByGroup.get(g).values().stream())
+				.flatMap(List::stream)
+				.noneMatch(cr -> CrewKey.of(cr).equals(crewKey))) {
+			throw new IllegalArgumentException("Crew " + crewKey.crewAbbrev()
+					+ " not found in event " + crewKey.event());
+		}
+		corrections.computeIfAbsent(crewKey, k -> new ArrayList<>())
+				.add(correction);
+		applyCorrections(crewKey.event());
+		return update(groups);
+	}
+
+	/**
+	 * Applies all the corrections of the crews of an event to the rows read
+	 * from the file, then updates the ranks in the event according to the
+	 * adjusted times.
+	 */
+	private void applyCorrections(final EventId event) {
+		final Set<MergeGroup> groups = groupsByEvent.getOrDefault(event,
+				Set.of());
+		final List<CategoryResult> eventRows = new ArrayList<>();
+		for (final MergeGroup group : groups) {
+			fileResultsByGroup.get(group).forEach((key, rows) -> {
+				if (key.event().equals(event)) {
+					for (CategoryResult cr : rows) {
+						for (final UnaryOperator<CategoryResult> correction : corrections
+								.getOrDefault(CrewKey.of(cr), List.of())) {
+							cr = correction.apply(cr);
+						}
+						eventRows.add(cr);
+					}
+				}
+			});
+		}
+		eventRows.sort(Comparator
+				.<CategoryResult>comparingInt(
+						cr -> cr.adjTimeMillis == RaceTimes.NO_TIME
+								? Integer.MAX_VALUE
+								: cr.adjTimeMillis)
+				.thenComparing(cr -> cr.eventRank,
+						Comparator.nullsLast(Comparator.naturalOrder())));
+		int eventRank = 0;
+		for (int i = 0; i < eventRows.size(); i++) {
+			final CategoryResult cr = eventRows.get(i);
+			final Integer newEventRank = cr.adjTimeMillis == RaceTimes.NO_TIME
+					? null
+					: ++eventRank;
+			if (!Objects.equals(cr.eventRank, newEventRank)) {
+				eventRows.set(i, cr.withEventRank(newEventRank));
+			}
+		}
+
+		// replace the rows of the event
+		final Map<EventCategoryKey, List<CategoryResult>> rowsByKey = eventRows
+				.stream().collect(Collectors.groupingBy(
+						CategoryResult::getEventCategory,
+						Collectors.toList()));
+		for (final MergeGroup group : groups) {
+			final SortedMap<EventCategoryKey, List<CategoryResult>> groupResults = new TreeMap<>(
+					rawResultsByGroup.get(group));
+			groupResults.replaceAll((key, rows) -> key.event().equals(event)
+					? rowsByKey.get(key).stream().sorted().toList()
+					: rows);
+			rawResultsByGroup.put(group, groupResults);
+		}
+	}
+
+	/**
+	 * Merges and ranks again the given groups, if their rows changed. Only the
+	 * results of these groups are visited.
+	 *
+	 * @return the keys of the categories added, updated or removed
+	 */
+	private SortedSet<EventCategoryKey> update(final Set<MergeGroup> groups) {
+		// detect the groups having changed
+		final Set<MergeGroup> changedGroups = new LinkedHashSet<>();
+		for (final MergeGroup group : groups) {
+			final SortedMap<EventCategoryKey, List<CategoryResult>> groupRawResults = rawResultsByGroup
+					.get(group);
+			final List<String> rows;
+			if (groupRawResults == null) {
+				rows = null;
+			} else {
+				rows = new ArrayList<>();
+				// not modified by merge/ranking: represents the raw data
+				groupRawResults.values().forEach(
+						crs -> crs.forEach(cr -> rows.add(cr.toString())));
+			}
+			if (!Objects.equals(rowsByGroup.get(group), rows)) {
+				changedGroups.add(group);
+				if (rows == null) {
+					rowsByGroup.remove(group);
+				} else {
+					rowsByGroup.put(group, rows);
+				}
+			}
+		}
+
+		// drop outdated results, then merge and rank changed groups only
+		final SortedSet<EventCategoryKey> changedKeys = new TreeSet<>();
+		for (final MergeGroup group : changedGroups) {
+			final Set<EventCategoryKey> keys = keysByGroup.remove(group);
+			if (keys != null) {
+				for (final EventCategoryKey key : keys) {
+					results.remove(key);
+					tableBuilder.remove(key);
+				}
+				changedKeys.addAll(keys);
+			}
+			final SortedMap<EventCategoryKey, List<CategoryResult>> groupRawResults = rawResultsByGroup
+					.get(group);
+			if (groupRawResults == null) {
+				continue;
+			}
+			// copy since merge and ranking modify the results
+			final SortedMap<EventCategoryKey, List<CategoryResult>> groupResults = new TreeMap<>();
+			groupRawResults.forEach((key, rows) -> groupResults.put(key,
+					rows.stream().map(CategoryResult::new).toList()));
+			lsm.mergeSpecialCategories(groupResults);
+			lsm.fixRankAndDelta(groupResults);
+			results.putAll(groupResults);
+			groupResults.forEach(tableBuilder::put);
+			keysByGroup.put(group, groupResults.keySet());
+			changedKeys.addAll(groupResults.keySet());
+		}
+		return changedKeys;
+	}
+
+	SortedMap<EventCategoryKey, List<CategoryResult>> getResults() {
+		return Collections.unmodifiableSortedMap(results);
+	}
+
+	/**
+	 * @return the results as a table, built again from the blocks of the
+	 *         categories only if some changed
+	 */
+	ResultTable getResultTable() {
+		return tableBuilder.build();
+	}
+
+	/**
+	 * CrewTimer exports have no line break after the last row, so a trailing
+	 * line is kept only if it is a complete record, i.e. has its quotes
+	 * balanced and as many fields as the header.
+	 *
+	 * @return the content without a possibly partially written last line
+	 */
+	private static byte[] getCompleteLines(final byte[] content) {
+		int lastLineStart = content.length;
+		while (lastLineStart > 0 && content[lastLineStart - 1] != '\n') {
+			lastLineStart--;
+		}
+		if (lastLineStart == 0 || lastLineStart == content.length) {
+			// header only or ends with a line break
+			return content;
+		}
+		final int headerFields = countFields(content, 0, content.length);
+		final int lastLineFields = countFields(content,
+				lastLineStart,
+				content.length);
+		if (lastLineFields == headerFields) {
+			return content;
+		}
+		return Arrays.copyOf(content, lastLineStart);
+	}
+
+	/**
+	 * @return the number of fields of the record starting at {@code start}, or
+	 *         -1 if the record is not terminated before {@code end}
+	 */
+	private static int countFields(final byte[] content, final int start,
+			final int end) {
+		int nbFields = 1;
+		boolean quoted = false;
+		for (int i = start; i < end; i++) {
+			final byte b = content[i];
+			if (b == '"') {
+				quoted = !quoted;
+			} else if (!quoted) {
+				if (b == ',') {
+					nbFields++;
+				} else if (b == '\n' || b == '\r') {
+					return nbFields;
+				}
+			}
+		}
+		return quoted ? -1 : nbFields;
+	}
+
+}
@@ -0,0 +1,243 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.StringJoiner;
+
+/**
+ * RFC 4180 CSV reader working directly on the bytes of a memory-mapped UTF-8
+ * file. Fields are only kept as offsets in the mapped buffer and decoded on
+ * demand, so that unused columns are never turned into strings.
+ * <p>
+ * Behaves like {@code CSVFormat.DEFAULT} with an empty null string: empty
+ * fields are returned as {@code null} and empty lines are ignored. The first
+ * record (header) is given to its own handler.
+ *
+ * @author Jean-David Maillefer
+ */
+final class MappedCsvReader {
+
+	private static final byte QUOTE = '"';
+
+	private static final byte DELIMITER = ',';
+
+	private static final byte CR = '\r';
+
+	private static final byte LF = '\n';
+
+	/** The mapped file, {@code null} when reading in-memory content. */
+	private final Path file;
+
+	private ByteBuffer buffer;
+
+	private int pos;
+
+	private int nbFields;
+
+	private int[] starts = new int[16];
+
+	private int[] ends = new int[16];
+
+	/** Whether the field contains escaped (doubled) quotes. */
+	private boolean[] escaped = new boolean[16];
+
+	private byte[] scratch = new byte[256];
+
+	private final CsvEngine.Row row = new CsvEngine.Row() {
+
+		@Override
+		public int size() {
+			return nbFields;
+		}
+
+		@Override
+		public String get(final int index) {
+			if (index < 0 || index >= nbFields) {
+				throw new ArrayIndexOutOfBoundsException(String.format(
+						"Index %d out of bounds for a row of %d fields",
+						index,
+						nbFields));
+			}
+			return decode(index);
+		}
+
+		@Override
+		public String toString() {
+			final StringJoiner sj = new StringJoiner(", ", "[", "]");
+			for (int i = 0; i < nbFields; i++) {
+				sj.add(String.valueOf(decode(i)));
+			}
+			return sj.toString();
+		}
+	};
+
+	MappedCsvReader(final Path file) {
+		this.file = file;
+	}
+
+	void read(final CsvEngine.RowHandler headerHandler,
+			final CsvEngine.RowHandler handler) throws IOException {
+		try (FileChannel channel = FileChannel.open(file,
+				StandardOpenOption.READ)) {
+			final long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException(
+						"File " + file + " is too large to be mapped");
+			}
+			// the mapping remains valid once the channel is closed
+			buffer = channel.map(MapMode.READ_ONLY, 0, size);
+		}
+		read(buffer, headerHandler, handler);
+	}
+
+	/**
+	 * Reads the given buffer, from its position 0 to its limit.
+	 */
+	void read(final ByteBuffer data, final CsvEngine.RowHandler headerHandler,
+			final CsvEngine.RowHandler handler) throws IOException {
+		buffer = data;
+		pos = 0;
+		boolean header = true;
+		while (nextRecord()) {
+			(header ? headerHandler : handler).handle(row);
+			header = false;
+		}
+	}
+
+	/**
+	 * Tokenizes the next non-empty record.
+	 *
+	 * @return {@code false} if the end of the buffer is reached
+	 */
+	private boolean nextRecord() throws IOException {
+		final int limit = buffer.limit();
+		while (pos < limit) {
+			final int recordStart = pos;
+			nbFields = 0;
+			boolean firstQuoted = false;
+			boolean endOfRecord = false;
+			while (!endOfRecord) {
+				if (nbFields == starts.length) {
+					grow();
+				}
+				if (pos < limit && buffer.get(pos) == QUOTE) {
+					firstQuoted |= nbFields == 0;
+					readQuotedField(limit, recordStart);
+				} else {
+					starts[nbFields] = pos;
+					while (pos < limit) {
+						final byte b = buffer.get(pos);
+						if (b == DELIMITER || b == LF || b == CR) {
+							break;
+						}
+						pos++;
+					}
+					ends[nbFields] = pos;
+					escaped[nbFields] = false;
+				}
+				nbFields++;
+
+				if (pos < limit && buffer.get(pos) == DELIMITER) {
+					pos++;
+				} else {
+					endOfRecord = true;
+					skipLineEnd(limit);
+				}
+			}
+			// empty lines are ignored
+			if (nbFields > 1 || ends[0] > starts[0] || firstQuoted) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void readQuotedField(final int limit, final int recordStart)
+			throws IOException {
+		// skip opening quote
+		pos++;
+		starts[nbFields] = pos;
+		escaped[nbFields] = false;
+		while (true) {
+			if (pos >= limit) {
+				throw new IOException(String.format(
+						"EOF reached before encapsulated token finished in %s (record starting at byte %d)",
+						getSourceName(),
+						recordStart));
+			}
+			if (buffer.get(pos) == QUOTE) {
+				if (pos + 1 < limit && buffer.get(pos + 1) == QUOTE) {
+					escaped[nbFields] = true;
+					pos += 2;
+				} else {
+					break;
+				}
+			} else {
+				pos++;
+			}
+		}
+		ends[nbFields] = pos;
+		// skip closing quote
+		pos++;
+		if (pos < limit) {
+			final byte b = buffer.get(pos);
+			if (b != DELIMITER && b != LF && b != CR) {
+				throw new IOException(String.format(
+						"Invalid char between encapsulated token and delimiter in %s at byte %d",
+						getSourceName(),
+						pos));
+			}
+		}
+	}
+
+	private String getSourceName() {
+		return file == null ? "in-memory content" : file.toString();
+	}
+
+	private void skipLineEnd(final int limit) {
+		if (pos < limit && buffer.get(pos) == CR) {
+			pos++;
+		}
+		if (pos < limit && buffer.get(pos) == LF) {
+			pos++;
+		}
+	}
+
+	private void grow() {
+		final int newLength = starts.length * 2;
+		starts = Arrays.copyOf(starts, newLength);
+		ends = Arrays.copyOf(ends, newLength);
+		escaped = Arrays.copyOf(escaped, newLength);
+	}
+
+	private String decode(final int index) {
+		final int start = starts[index];
+		final int length = ends[index] - start;
+		if (length == 0) {
+			return null;
+		}
+		if (scratch.length < length) {
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+		}
+		buffer.get(start, scratch, 0, length);
+		if (!escaped[index]) {
+			return new String(scratch, 0, length, StandardCharsets.UTF_8);
+		}
+		// collapse doubled quotes
+		int j = 0;
+		for (int i = 0; i < length; i++, j++) {
+			scratch[j] = scratch[i];
+			if (scratch[i] == QUOTE) {
+				i++;
+			}
+		}
+		return new String(scratch, 0, j, StandardCharsets.UTF_8);
+	}
+
+}
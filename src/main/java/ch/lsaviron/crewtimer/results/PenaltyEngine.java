@@ -0,0 +1,115 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Computes adjusted times from the raw times and the CrewTimer penalty codes,
+ * e.g. {@code Faux-départ(120s)}, a status ({@code DNS}, {@code DNF},
+ * {@code DQ}, {@code DSQ}) or several of them separated by commas.
+ * <p>
+ * The time of a penalty is the one given in the code, or else the one of the
+ * regatta table (see {@link RegattaContext}), so that the jury may add a
+ * penalty by its label only.
+ *
+ * @author Jean-David Maillefer
+ */
+final class PenaltyEngine {
+
+	private static final Pattern TIME_PENALTY_PATTERN = Pattern
+			.compile("(.+)\\((\\d+)s\\)");
+
+	private static final String CODES_SEPARATOR = ",";
+
+	/** Time of the known penalties of the regatta, by label. */
+	private final Map<String, Integer> secondsByLabel;
+
+	PenaltyEngine(final Map<String, Integer> secondsByLabel) {
+		this.secondsByLabel = secondsByLabel;
+	}
+
+	/**
+	 * @param penaltyCodes
+	 *            penalty codes, possibly {@code null}
+	 * @return the time of all the penalties, or {@link RaceTimes#NO_TIME} if
+	 *         a code is a status
+	 * @throws IllegalArgumentException
+	 *             if a code is not known
+	 */
+	int getPenaltyMillis(final String penaltyCodes) {
+		if (penaltyCodes == null || penaltyCodes.isBlank()) {
+			return 0;
+		}
+		int res = 0;
+		for (final String rawCode : penaltyCodes.split(CODES_SEPARATOR)) {
+			final String code = rawCode.strip();
+			if (RaceTimes.isStatus(code)) {
+				return RaceTimes.NO_TIME;
+			}
+			res += getSeconds(code) * RaceTimes.MILLIS_PER_SECOND;
+		}
+		return res;
+	}
+
+	private int getSeconds(final String code) {
+		final Matcher matcher = TIME_PENALTY_PATTERN.matcher(code);
+		if (matcher.matches()) {
+			return Integer.parseInt(matcher.group(2));
+		}
+		final Integer seconds = secondsByLabel.get(code);
+		if (seconds == null) {
+			throw new IllegalArgumentException("Penalty code " + code
+					+ " is not known (known: " + secondsByLabel.keySet()
+					+ ")");
+		}
+		return seconds;
+	}
+
+	/**
+	 * @return the status found in the penalty codes, {@code null} if none
+	 */
+	static String getStatus(final String penaltyCodes) {
+		if (penaltyCodes == null) {
+			return null;
+		}
+		for (final String rawCode : penaltyCodes.split(CODES_SEPARATOR)) {
+			final String code = rawCode.strip();
+			if (RaceTimes.isStatus(code)) {
+				return code;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the adjusted time (a duration like in CrewTimer CSV or a
+	 *         status), {@code null} if there is no raw time to compute it
+	 *         from
+	 */
+	String computeAdjTime(final String rawTime, final String penaltyCodes) {
+		final String status = getStatus(penaltyCodes);
+		if (status != null) {
+			return status;
+		}
+		final int rawTimeMillis = RaceTimes.parseMillisOrNoTime(rawTime);
+		if (rawTimeMillis == RaceTimes.NO_TIME) {
+			return null;
+		}
+		return RaceTimes
+				.formatDuration(rawTimeMillis + getPenaltyMillis(penaltyCodes));
+	}
+
+	/**
+	 * @return whether both adjusted times are the same status or the same
+	 *         duration, whatever their format
+	 */
+	static boolean isSameAdjTime(final String adjTime1, final String adjTime2) {
+		if (RaceTimes.isStatus(adjTime1) || RaceTimes.isStatus(adjTime2)) {
+			return adjTime1.equals(adjTime2);
+		}
+		return RaceTimes.parseMillisOrNoTime(adjTime1) == RaceTimes
+				.parseMillisOrNoTime(adjTime2);
+	}
+
+}
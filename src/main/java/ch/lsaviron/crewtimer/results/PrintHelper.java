@@ -1,33 +1,62 @@
 package ch.lsaviron.crewtimer.results;
 
 import java.util.List;
-import java.util.SortedMap;
 
 /**
  * @author Jean-David Maillefer
  */
-interface PrintHelper {
-
-	void printRaceHeader(String header);
-
-	void printResultRow(Integer categoryRank, String medals, String crewAbbrev,
-			String crew, String adjTime, String delta);
-
-	void printRaceFooter();
+interface PrintHelper extends RowPrinter {
 
 	default void end() {
 		// do nothing by default
 	}
 
-	public static String formatDelta(final String value) {
-		if (value == null) {
+	/**
+	 * Measures the result row of a crew before printing it, e.g. while its
+	 * sub-result is prepared concurrently with the other ones (see
+	 * {@link PrintModel}). Thread-safe.
+	 *
+	 * @return the height of the row, in twips, or 0 if the helper does not lay
+	 *         out its rows
+	 */
+	default short measureResultRow(final String crew) {
+		return 0;
+	}
+
+	/**
+	 * Same as
+	 * {@link #printResultRow(int, String, String, String, String, int, List)},
+	 * with the row height given by {@link #measureResultRow(String)}.
+	 */
+	default void printResultRow(final short rowHeight, final int categoryRank,
+			final String medals, final String crewAbbrev, final String crew,
+			final String adjTime, final int deltaMillis,
+			final List<String> splits) {
+		printResultRow(categoryRank,
+				medals,
+				crewAbbrev,
+				crew,
+				adjTime,
+				deltaMillis,
+				splits);
+	}
+
+	public static String formatDelta(final int deltaMillis) {
+		if (deltaMillis == RaceTimes.NO_TIME) {
 			return "";
 		}
-		return "+" + value;
+		return "+" + RaceTimes.formatDelta(deltaMillis);
 	}
 
-	List<SubResult> getSubResults(
-			SortedMap<EventCategoryKey, List<CategoryResult>> results);
+	List<SubResult> getSubResults(ResultTable results);
+
+	/**
+	 * @return the sub-result printing the overall leaderboards
+	 */
+	default SubResult getLeaderboardSubResult(
+			final List<Leaderboard> leaderboards) {
+		return new LeaderboardSubResult(leaderboards);
+	}
 
 	static String formatAdjTime(final String adjTime) {
 		if (adjTime == null) {
@@ -36,8 +65,19 @@ interface PrintHelper {
 		return adjTime;
 	}
 
-	static String formatRank(final Integer rank) {
-		if (rank == null || rank.intValue() == 0) {
+	/**
+	 * @return the values prefixed by a tab each, to append to a row
+	 */
+	static String formatExtraColumns(final List<String> values) {
+		final StringBuilder sb = new StringBuilder();
+		for (final String value : values) {
+			sb.append('\t').append(value);
+		}
+		return sb.toString();
+	}
+
+	static String formatRank(final int rank) {
+		if (rank == 0) {
 			return "";
 		}
 		return "" + rank;
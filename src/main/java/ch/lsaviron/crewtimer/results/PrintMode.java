@@ -3,12 +3,13 @@ package ch.lsaviron.crewtimer.results;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.SortedMap;
+import java.util.Map;
 
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 
 /**
  * @author Jean-David Maillefer
@@ -20,46 +21,35 @@ enum PrintMode {
 	 */
 	SCREEN {
 
-		static PrintHelper SCREEN_PRINT_HELPER = new PrintHelper() {
-
-			@Override
-			public void printRaceHeader(final String header) {
-				System.out.println();
-				System.out.println(header);
-				System.out.println("--------------------------");
-			}
-
-			@Override
-			public void printResultRow(final Integer categoryRank,
-					final String medals, final String crewAbbrev,
-					final String crew, final String adjTime,
-					final String delta) {
-
-				System.out.printf("%d: %s\t%s\t%s\t%s\t%s%n",
-						categoryRank,
-						medals,
-						crewAbbrev,
-						crew,
-						PrintHelper.formatAdjTime(adjTime),
-						PrintHelper.formatDelta(delta));
-			}
-
-			@Override
-			public void printRaceFooter() {
-				System.out.println();
-			}
-
-			@Override
-			public List<SubResult> getSubResults(
-					final SortedMap<EventCategoryKey, List<CategoryResult>> results) {
-				return Collections
-						.<SubResult>singletonList(new SimpleSubResult(results));
-			}
-		};
-
 		@Override
 		PrintHelper buildHelper(final LSM lsm) {
-			return SCREEN_PRINT_HELPER;
+			return new ConsolePrintHelper(System.out) {
+
+				@Override
+				public void printRaceHeader(final String header,
+						final List<String> legs) {
+					writeLine();
+					line.append(header);
+					writeLine();
+					line.append("--------------------------");
+					writeLine();
+				}
+
+				@Override
+				public void printResultRow(final int categoryRank,
+						final String medals, final String crewAbbrev,
+						final String crew, final String adjTime,
+						final int deltaMillis, final List<String> splits) {
+					line.append(categoryRank).append(": ").append(medals)
+							.append('\t').append(crewAbbrev).append('\t')
+							.append(crew).append('\t');
+					appendAdjTime(adjTime);
+					line.append('\t');
+					appendDelta(deltaMillis);
+					appendExtraColumns(splits);
+					writeLine();
+				}
+			};
 		}
 
 	},
@@ -69,55 +59,54 @@ enum PrintMode {
 	 */
 	TSV {
 
-		static PrintHelper TSV_PRINT_HELPER = new PrintHelper() {
-
-			@Override
-			public void printRaceHeader(final String header) {
-				System.out.println(header);
-				System.out.printf(
-						"Rang\tM\tNom court\tEquipe\tTemps\tDifférence%n");
-			}
+		@Override
+		PrintHelper buildHelper(final LSM lsm) {
+			return new ConsolePrintHelper(System.out) {
 
-			@Override
-			public void printResultRow(final Integer categoryRank,
-					final String medals, final String crewAbbrev,
-					final String crew, final String adjTime,
-					final String delta) {
-
-				System.out.printf("%d\t%s\t%s\t%s\t%s\t'%s%n",
-						categoryRank,
-						medals,
-						crewAbbrev,
-						crew,
-						PrintHelper.formatAdjTime(adjTime),
-						PrintHelper.formatDelta(delta));
-			}
+				@Override
+				public void printRaceHeader(final String header,
+						final List<String> legs) {
+					line.append(header);
+					writeLine();
+					line.append("Rang\tM\tNom court\tEquipe\tTemps\tDifférence");
+					appendExtraColumns(legs);
+					writeLine();
+				}
 
-			@Override
-			public void printRaceFooter() {
-				System.out.println();
-			}
+				@Override
+				public void printResultRow(final int categoryRank,
+						final String medals, final String crewAbbrev,
+						final String crew, final String adjTime,
+						final int deltaMillis, final List<String> splits) {
+					line.append(categoryRank).append('\t').append(medals)
+							.append('\t').append(crewAbbrev).append('\t')
+							.append(crew).append('\t');
+					appendAdjTime(adjTime);
+					line.append("\t'");
+					appendDelta(deltaMillis);
+					appendExtraColumns(splits);
+					writeLine();
+				}
+			};
+		}
 
-			@Override
-			public List<SubResult> getSubResults(
-					final SortedMap<EventCategoryKey, List<CategoryResult>> results) {
-				return Collections
-						.<SubResult>singletonList(new SimpleSubResult(results));
-			}
-		};
+	},
+	XLS {
 
 		@Override
-		PrintHelper buildHelper(final LSM lsm) {
-			return TSV_PRINT_HELPER;
+		boolean isSlow() {
+			return true;
 		}
 
-	},
-	XLS {
+		@Override
+		String getFileExtension() {
+			return ".xls";
+		}
 
 		@Override
 		PrintHelper buildHelper(final LSM lsm) {
 			return new ExcelPrintHelper(
-					buildOutputFile(lsm, ".xls").toString()) {
+					buildOutputFile(lsm).toString()) {
 
 				@Override
 				Workbook createWorkbook() throws IOException {
@@ -129,10 +118,20 @@ enum PrintMode {
 	},
 	XLSX {
 
+		@Override
+		boolean isSlow() {
+			return true;
+		}
+
+		@Override
+		String getFileExtension() {
+			return ".xlsx";
+		}
+
 		@Override
 		PrintHelper buildHelper(final LSM lsm) {
 			return new ExcelPrintHelper(
-					buildOutputFile(lsm, ".xlsx").toString()) {
+					buildOutputFile(lsm).toString()) {
 
 				@Override
 				Workbook createWorkbook() throws IOException {
@@ -141,13 +140,87 @@ enum PrintMode {
 			};
 		}
 
+	},
+	/**
+	 * Same as {@link #XLSX}, but only a window of rows of each sheet is kept
+	 * in memory, the others being flushed to temporary files. For large
+	 * workbooks.
+	 */
+	XLSX_STREAMING {
+
+		/** Number of rows of a sheet kept in memory. */
+		private static final int ROW_WINDOW = 100;
+
+		@Override
+		boolean isSlow() {
+			return true;
+		}
+
+		@Override
+		String getFileExtension() {
+			return XLSX.getFileExtension();
+		}
+
+		@Override
+		PrintHelper buildHelper(final LSM lsm) {
+			return new ExcelPrintHelper(
+					buildOutputFile(lsm).toString()) {
+
+				@Override
+				Workbook createWorkbook() {
+					final SXSSFWorkbook res = new SXSSFWorkbook(ROW_WINDOW);
+					res.setCompressTempFiles(true);
+					return res;
+				}
+			};
+		}
+
 	};
 
 	abstract PrintHelper buildHelper(LSM lsm);
 
-	private static Path buildOutputFile(final LSM lsm, final String extension) {
+	/**
+	 * @return whether printing is slow (e.g. writing a workbook), so that it
+	 *         runs on its own thread when printing in several modes
+	 */
+	boolean isSlow() {
+		return false;
+	}
+
+	/**
+	 * @return the extension of the file written next to the CSV, {@code null}
+	 *         if none
+	 */
+	String getFileExtension() {
+		return null;
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if several modes write the same file
+	 */
+	static void checkOutputFiles(final List<PrintMode> printModes) {
+		final Map<String, PrintMode> modesByExtension = new HashMap<>();
+		for (final PrintMode mode : printModes) {
+			final String extension = mode.getFileExtension();
+			if (extension == null) {
+				continue;
+			}
+			final PrintMode other = modesByExtension.putIfAbsent(extension,
+					mode);
+			if (other != null && other != mode) {
+				throw new IllegalArgumentException(String.format(
+						"Print modes %s and %s both write the %s file",
+						other,
+						mode,
+						extension));
+			}
+		}
+	}
+
+	Path buildOutputFile(final LSM lsm) {
 		final Path in = Paths.get(lsm.resultsFromCrewTimerCsv);
 		return in.resolveSibling(in.getFileName().toString()
-				.replaceAll("(?i)\\.csv$", extension));
+				.replaceAll("(?i)\\.csv$", getFileExtension()));
 	}
 }
\ No newline at end of file
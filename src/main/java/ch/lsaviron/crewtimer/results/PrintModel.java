@@ -0,0 +1,100 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Row model of a sub-result: records the rows printed, with their values
+ * already formatted and the heights of the result rows measured (see
+ * {@link PrintHelper#measureResultRow(String)}), to replay them later on the
+ * actual {@link PrintHelper}. Allows to prepare the content of several
+ * sub-results concurrently, only the replay being sequential.
+ * <p>
+ * The cells and their styles are still created by the replay, since a POI
+ * workbook is not thread-safe. The measure of the wrapped crews, the costliest
+ * step not needing POI, is done while recording.
+ *
+ * @author Jean-David Maillefer
+ */
+final class PrintModel implements RowPrinter {
+
+	private sealed interface ModelRow {
+
+		void replay(PrintHelper printer);
+	}
+
+	private record RaceHeader(String header, List<String> legs)
+			implements ModelRow {
+
+		@Override
+		public void replay(final PrintHelper printer) {
+			printer.printRaceHeader(header, legs);
+		}
+	}
+
+	private record ResultRow(short rowHeight, int categoryRank, String medals,
+			String crewAbbrev, String crew, String adjTime, int deltaMillis,
+			List<String> splits) implements ModelRow {
+
+		@Override
+		public void replay(final PrintHelper printer) {
+			printer.printResultRow(rowHeight,
+					categoryRank,
+					medals,
+					crewAbbrev,
+					crew,
+					adjTime,
+					deltaMillis,
+					splits);
+		}
+	}
+
+	private record RaceFooter() implements ModelRow {
+
+		@Override
+		public void replay(final PrintHelper printer) {
+			printer.printRaceFooter();
+		}
+	}
+
+	private static final RaceFooter RACE_FOOTER = new RaceFooter();
+
+	private final List<ModelRow> rows = new ArrayList<>();
+
+	/** Helper the rows are recorded for, measuring them. */
+	private final PrintHelper printHelper;
+
+	PrintModel(final PrintHelper printHelper) {
+		this.printHelper = printHelper;
+	}
+
+	@Override
+	public void printRaceHeader(final String header, final List<String> legs) {
+		rows.add(new RaceHeader(header, legs));
+	}
+
+	@Override
+	public void printResultRow(final int categoryRank, final String medals,
+			final String crewAbbrev, final String crew, final String adjTime,
+			final int deltaMillis, final List<String> splits) {
+		rows.add(new ResultRow(printHelper.measureResultRow(crew),
+				categoryRank, medals, crewAbbrev, crew, adjTime, deltaMillis,
+				splits));
+	}
+
+	@Override
+	public void printRaceFooter() {
+		rows.add(RACE_FOOTER);
+	}
+
+	/**
+	 * Prints the recorded rows, in order, on the helper they were recorded
+	 * for.
+	 */
+	void replay() {
+		for (final ModelRow row : rows) {
+			row.replay(printHelper);
+		}
+	}
+
+}
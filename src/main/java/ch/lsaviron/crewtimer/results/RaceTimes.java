@@ -0,0 +1,269 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.time.LocalTime;
+
+/**
+ * Parsing and formatting of the times found in CrewTimer CSV, as milliseconds
+ * held in an {@code int}. Times of day (e.g. {@code 10:15:01.8}) and durations
+ * (e.g. {@code 34:35.4}) share the same format:
+ * {@code [h:]mm:ss[.f]} with up to 3 digits for the fraction of second.
+ *
+ * @author Jean-David Maillefer
+ */
+final class RaceTimes {
+
+	/** Value used when there is no time (empty, DNS, DNF, ...). */
+	static final int NO_TIME = -1;
+
+	static final int MILLIS_PER_SECOND = 1000;
+
+	static final int MILLIS_PER_MINUTE = 60 * MILLIS_PER_SECOND;
+
+	static final int MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
+
+	static final int MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
+
+	private static final String DNS = "DNS";
+
+	private static final String DNF = "DNF";
+
+	/** Disqualified, as exported by CrewTimer. */
+	private static final String DQ = "DQ";
+
+	private static final String DSQ = "DSQ";
+
+	private RaceTimes() {
+		// utility class
+	}
+
+	/**
+	 * @return whether the value is a status given by CrewTimer instead of a
+	 *         time
+	 */
+	static boolean isStatus(final String value) {
+		return DNS.equals(value) || DNF.equals(value) || DQ.equals(value)
+				|| DSQ.equals(value);
+	}
+
+	/**
+	 * Lenient variant of {@link #parseMillis(CharSequence)}.
+	 *
+	 * @return {@link #NO_TIME} if the value is blank or is a status (DNS,
+	 *         DNF, DQ, DSQ)
+	 */
+	static int parseMillisOrNoTime(final String value) {
+		if (value == null || value.isBlank() || isStatus(value)) {
+			return NO_TIME;
+		}
+		return parseMillis(value);
+	}
+
+	/**
+	 * Parses a time without any allocation (unless the time is invalid).
+	 *
+	 * @return the time in milliseconds
+	 * @throws IllegalArgumentException
+	 *             if the time is not of the form {@code [h:]mm:ss[.f]}
+	 */
+	static int parseMillis(final CharSequence time) {
+		final int length = time.length();
+		int pos = 0;
+
+		// first number: hours or minutes
+		int first = 0;
+		final int firstStart = pos;
+		while (pos < length && isDigit(time.charAt(pos))
+				&& pos - firstStart < 2) {
+			first = first * 10 + time.charAt(pos++) - '0';
+		}
+		if (pos == firstStart || pos >= length || time.charAt(pos) != ':') {
+			throw invalidTime(time);
+		}
+		pos++;
+
+		// second number: minutes or seconds
+		int second = 0;
+		final int secondStart = pos;
+		while (pos < length && isDigit(time.charAt(pos))
+				&& pos - secondStart < 2) {
+			second = second * 10 + time.charAt(pos++) - '0';
+		}
+		final int secondDigits = pos - secondStart;
+
+		final int hours;
+		final int minutes;
+		final int seconds;
+		if (pos < length && time.charAt(pos) == ':') {
+			pos++;
+			int third = 0;
+			final int thirdStart = pos;
+			while (pos < length && isDigit(time.charAt(pos))
+					&& pos - thirdStart < 2) {
+				third = third * 10 + time.charAt(pos++) - '0';
+			}
+			if (secondDigits == 0 || pos - thirdStart != 2) {
+				throw invalidTime(time);
+			}
+			hours = first;
+			minutes = second;
+			seconds = third;
+		} else {
+			if (secondDigits != 2) {
+				throw invalidTime(time);
+			}
+			hours = 0;
+			minutes = first;
+			seconds = second;
+		}
+
+		// fraction of second
+		int millis = 0;
+		if (pos < length) {
+			if (time.charAt(pos) != '.') {
+				throw invalidTime(time);
+			}
+			pos++;
+			final int fractionStart = pos;
+			while (pos < length && isDigit(time.charAt(pos))
+					&& pos - fractionStart < 3) {
+				millis = millis * 10 + time.charAt(pos++) - '0';
+			}
+			final int fractionDigits = pos - fractionStart;
+			if (fractionDigits == 0 || pos != length) {
+				throw invalidTime(time);
+			}
+			for (int i = fractionDigits; i < 3; i++) {
+				millis *= 10;
+			}
+		}
+		return hours * MILLIS_PER_HOUR + minutes * MILLIS_PER_MINUTE
+				+ seconds * MILLIS_PER_SECOND + millis;
+	}
+
+	private static boolean isDigit(final char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static IllegalArgumentException invalidTime(
+			final CharSequence time) {
+		return new IllegalArgumentException(
+				"Time " + time + " is not a valide time representation");
+	}
+
+	/**
+	 * @return the time of day after adding the given duration, wrapping around
+	 *         midnight
+	 */
+	static int plus(final int timeOfDayMillis, final int durationMillis) {
+		return Math.floorMod(timeOfDayMillis + durationMillis, MILLIS_PER_DAY);
+	}
+
+	/**
+	 * Formats a time of day like {@link LocalTime#toString()}, e.g.
+	 * {@code 10:15:01.800}.
+	 */
+	static String formatTimeOfDay(final int millis) {
+		final StringBuilder sb = new StringBuilder(12);
+		final int hours = millis / MILLIS_PER_HOUR;
+		final int minutes = millis / MILLIS_PER_MINUTE % 60;
+		final int seconds = millis / MILLIS_PER_SECOND % 60;
+		final int fraction = millis % MILLIS_PER_SECOND;
+		appendTwoDigits(sb, hours).append(':');
+		appendTwoDigits(sb, minutes);
+		if (seconds > 0 || fraction > 0) {
+			sb.append(':');
+			appendTwoDigits(sb, seconds);
+			if (fraction > 0) {
+				sb.append('.');
+				if (fraction < 100) {
+					sb.append('0');
+				}
+				if (fraction < 10) {
+					sb.append('0');
+				}
+				sb.append(fraction);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Formats a delta as {@code mm:ss.S} (tenths of second, truncated). Hours
+	 * are not displayed.
+	 */
+	static String formatDelta(final int millis) {
+		return appendDelta(new StringBuilder(7), millis).toString();
+	}
+
+	/**
+	 * Same as {@link #formatDelta(int)}, appending to the given builder.
+	 */
+	static StringBuilder appendDelta(final StringBuilder sb, final int millis) {
+		final int wrapped = Math.floorMod(millis, MILLIS_PER_DAY);
+		appendTwoDigits(sb, wrapped / MILLIS_PER_MINUTE % 60).append(':');
+		appendTwoDigits(sb, wrapped / MILLIS_PER_SECOND % 60).append('.');
+		return sb.append(wrapped % MILLIS_PER_SECOND / 100);
+	}
+
+	/**
+	 * Formats a duration like CrewTimer does, e.g. {@code 34:36.657} or
+	 * {@code 1:02:03.450}.
+	 */
+	static String formatDuration(final int millis) {
+		final StringBuilder sb = new StringBuilder(11);
+		final int hours = millis / MILLIS_PER_HOUR;
+		if (hours > 0) {
+			sb.append(hours).append(':');
+		}
+		appendTwoDigits(sb, millis / MILLIS_PER_MINUTE % 60).append(':');
+		appendTwoDigits(sb, millis / MILLIS_PER_SECOND % 60).append('.');
+		final int fraction = millis % MILLIS_PER_SECOND;
+		if (fraction < 100) {
+			sb.append('0');
+		}
+		if (fraction < 10) {
+			sb.append('0');
+		}
+		return sb.append(fraction).toString();
+	}
+
+	/**
+	 * Formats a split (time since the start at a timing point, time of a leg
+	 * or gap) like CrewTimer does for intermediate times, e.g.
+	 * {@code 07:45.6} (tenths of second, truncated).
+	 *
+	 * @return an empty string for {@link #NO_TIME}
+	 */
+	static String formatSplit(final int millis) {
+		if (millis == NO_TIME) {
+			return "";
+		}
+		final StringBuilder sb = new StringBuilder(10);
+		int abs = millis;
+		if (millis < 0) {
+			// e.g. a leg between inconsistent timing points
+			sb.append('-');
+			abs = -millis;
+		}
+		final int hours = abs / MILLIS_PER_HOUR;
+		if (hours > 0) {
+			sb.append(hours).append(':');
+		}
+		appendTwoDigits(sb, abs / MILLIS_PER_MINUTE % 60).append(':');
+		appendTwoDigits(sb, abs / MILLIS_PER_SECOND % 60).append('.');
+		return sb.append(abs % MILLIS_PER_SECOND / 100).toString();
+	}
+
+	static LocalTime toLocalTime(final int millis) {
+		return LocalTime.ofNanoOfDay(millis * 1_000_000L);
+	}
+
+	private static StringBuilder appendTwoDigits(final StringBuilder sb,
+			final int value) {
+		if (value < 10) {
+			sb.append('0');
+		}
+		return sb.append(value);
+	}
+
+}
@@ -0,0 +1,109 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import ch.lsaviron.crewtimer.results.EventId.Race;
+
+/**
+ * Settings of the regatta being processed, depending on its year: race markers
+ * (emojis) and penalties. Immutable, so that regattas of different years may be
+ * processed concurrently. The intermediate timing points are detected from
+ * the CSV header (see {@link CsvSchema}).
+ *
+ * @author Jean-David Maillefer
+ */
+public final class RegattaContext {
+
+	/** Year used when none is specified. */
+	public static final int DEFAULT_YEAR = 2024;
+
+	/**
+	 * Time in seconds of the penalties used, by label. Part of the
+	 * {@link #getFingerprint() fingerprint}, so that a change here computes
+	 * the snapshots again.
+	 */
+	private static final Map<Integer, Map<String, Integer>> PENALTY_SECONDS_PER_YEAR = Map
+			.of(2022,
+					Map.of("Faux-départ", 120),
+					2023,
+					Map.of("120xPénalité", 120),
+					2024,
+					Map.of("Faux-départ", 120, "Interférence", 30));
+
+	private final int year;
+
+	private final Map<String, Race> racesByEmoji;
+
+	private final PenaltyEngine penaltyEngine;
+
+	private final int fingerprint;
+
+	public RegattaContext(final int year) {
+		this(year, PENALTY_SECONDS_PER_YEAR.getOrDefault(year, Map.of()));
+	}
+
+	RegattaContext(final int year,
+			final Map<String, Integer> penaltySecondsByLabel) {
+		this.year = year;
+		racesByEmoji = Race.indexByEmoji(year);
+		penaltyEngine = new PenaltyEngine(penaltySecondsByLabel);
+		// sorted, so that the text does not depend on the map implementation;
+		// String#hashCode() is specified, so stable across runs
+		fingerprint = (year + " " + new TreeMap<>(racesByEmoji) + " "
+				+ new TreeMap<>(penaltySecondsByLabel)).hashCode();
+	}
+
+	public int getYear() {
+		return year;
+	}
+
+	/**
+	 * @return a hash of the settings used to compute the results (year, race
+	 *         markers and penalties), keying the snapshots (see
+	 *         {@link ResultSnapshot})
+	 */
+	int getFingerprint() {
+		return fingerprint;
+	}
+
+	PenaltyEngine getPenaltyEngine() {
+		return penaltyEngine;
+	}
+
+	/**
+	 * @return the race of this year having the given emoji, or {@code null} if
+	 *         the emoji is {@code null}
+	 * @throws IllegalArgumentException
+	 *             if the emoji is not known for this year
+	 */
+	public Race getRace(final String emoji) {
+		if (emoji == null) {
+			// special case to allow null emoji
+			return null;
+		}
+		Race res = racesByEmoji.get(emoji);
+		if (res == null) {
+			// keys are normalized: only normalize when needed
+			res = racesByEmoji.get(LSM.normalize(emoji));
+		}
+		if (res == null) {
+			// debug infos
+			System.err.println("emoji chars");
+			emoji.chars().forEach(c -> System.err.printf("%x%n", c));
+			System.err.println("normalized emoji chars");
+			LSM.normalize(emoji).chars()
+					.forEach(c -> System.err.printf("%x%n", c));
+
+			throw new IllegalArgumentException("Emoji " + emoji
+					+ " is not a known race marker for year " + year);
+		}
+		return res;
+	}
+
+	@Override
+	public String toString() {
+		return "RegattaContext [year=" + year + "]";
+	}
+
+}
@@ -0,0 +1,187 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary snapshot of the ranked results of a CrewTimer CSV (see
+ * {@link ResultTable#write(java.io.DataOutput)}), written next to it. A
+ * snapshot is only used for the same CSV content (SHA-256), the same settings
+ * of the regatta (see {@link RegattaContext#getFingerprint()}) and the same
+ * {@link #SCHEMA_VERSION}. The messages printed while computing the results
+ * (e.g. penalty warnings) are stored with them, to be printed again when the
+ * snapshot is used.
+ *
+ * @author Jean-David Maillefer
+ */
+final class ResultSnapshot {
+
+	/**
+	 * Version of the format and of the computation of the results: to be
+	 * incremented when any of them changes, so that older snapshots are
+	 * computed again. This includes the code of the computation, e.g. the
+	 * merges of categories ({@link LSM#mergeSpecialCategories}) or the order
+	 * of the categories; the per-year tables are covered by the fingerprint of
+	 * the {@link RegattaContext}.
+	 */
+	static final int SCHEMA_VERSION = 4;
+
+	/** "LSMR" */
+	private static final int MAGIC = 0x4C534D52;
+
+	private static final String EXTENSION = ".snapshot";
+
+	/** Magic, version, year, fingerprint and length of the hash. */
+	private static final int HEADER_INTS = 5;
+
+	private ResultSnapshot() {
+		// utility class
+	}
+
+	/**
+	 * @return the path of the snapshot of the CSV, e.g.
+	 *         {@code r13930.csv.snapshot}
+	 */
+	static Path getPath(final Path csv) {
+		return csv.resolveSibling(csv.getFileName() + EXTENSION);
+	}
+
+	/**
+	 * @return the hash of the CSV content, keying the snapshot
+	 */
+	static byte[] hash(final byte[] content) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(content);
+		} catch (final NoSuchAlgorithmException e) {
+			// required on every Java platform
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Reads a snapshot. The header is read first, and only a snapshot
+	 * matching it is memory-mapped: a mapping is only released by the garbage
+	 * collector, and Windows refuses to replace a mapped file, as done by
+	 * {@link #save} when the snapshot is out of date.
+	 *
+	 * @return the results of the snapshot, or {@code null} if there is none
+	 *         for this CSV content, regatta settings and schema version
+	 */
+	static ResultTable load(final Path snapshot, final byte[] csvHash,
+			final RegattaContext context) throws IOException {
+		return load(snapshot, csvHash, context, new ArrayList<>());
+	}
+
+	/**
+	 * Same as {@link #load(Path, byte[], RegattaContext)}, also reading the
+	 * messages printed while computing the results.
+	 *
+	 * @param messages
+	 *            filled with the messages of the snapshot, if used
+	 */
+	static ResultTable load(final Path snapshot, final byte[] csvHash,
+			final RegattaContext context, final List<String> messages)
+			throws IOException {
+		try (FileChannel channel = FileChannel.open(snapshot)) {
+			final ByteBuffer header = ByteBuffer
+					.allocate(HEADER_INTS * Integer.BYTES + csvHash.length);
+			if (!readFully(channel, header)
+					|| header.getInt() != MAGIC
+					|| header.getInt() != SCHEMA_VERSION
+					|| header.getInt() != context.getYear()
+					|| header.getInt() != context.getFingerprint()
+					|| header.getInt() != csvHash.length
+					|| !header.slice().equals(ByteBuffer.wrap(csvHash))) {
+				return null;
+			}
+			final ByteBuffer in = channel.map(MapMode.READ_ONLY,
+					header.capacity(),
+					channel.size() - header.capacity());
+			final String[] read = new String[in.getInt()];
+			for (int i = 0; i < read.length; i++) {
+				read[i] = ResultTable.readString(in);
+			}
+			final ResultTable res = ResultTable.read(in, context);
+			messages.addAll(List.of(read));
+			return res;
+		} catch (final NoSuchFileException e) {
+			return null;
+		} catch (final RuntimeException e) {
+			// e.g. truncated file: computed again
+			System.out.printf("Attention: instantané %s illisible (%s)%n",
+					snapshot,
+					e);
+			return null;
+		}
+	}
+
+	/**
+	 * @return whether the buffer could be filled, then flipped to be read
+	 */
+	private static boolean readFully(final FileChannel channel,
+			final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				return false;
+			}
+		}
+		buffer.flip();
+		return true;
+	}
+
+	/**
+	 * Writes the snapshot, replacing any previous one atomically.
+	 */
+	static void save(final Path snapshot, final byte[] csvHash,
+			final RegattaContext context, final ResultTable results)
+			throws IOException {
+		save(snapshot, csvHash, context, results, List.of());
+	}
+
+	/**
+	 * Same as {@link #save(Path, byte[], RegattaContext, ResultTable)}, with
+	 * the messages printed while computing the results, to print them again
+	 * when the snapshot is used.
+	 */
+	static void save(final Path snapshot, final byte[] csvHash,
+			final RegattaContext context, final ResultTable results,
+			final List<String> messages) throws IOException {
+		final Path tmp = Files.createTempFile(snapshot.toAbsolutePath()
+				.getParent(), snapshot.getFileName().toString(), ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(SCHEMA_VERSION);
+				out.writeInt(context.getYear());
+				out.writeInt(context.getFingerprint());
+				out.writeInt(csvHash.length);
+				out.write(csvHash);
+				out.writeInt(messages.size());
+				for (final String message : messages) {
+					ResultTable.writeString(out, message);
+				}
+				results.write(out);
+			}
+			Files.move(tmp,
+					snapshot,
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+}
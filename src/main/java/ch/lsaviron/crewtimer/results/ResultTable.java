@@ -0,0 +1,546 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import ch.lsaviron.lsm.LsmEventCategory;
+
+/**
+ * Read-only, columnar store of ranked results: one primitive array per
+ * numeric column and dictionary-encoded strings, rows of a same
+ * {@link EventCategoryKey} being contiguous (a block). The splits of the
+ * intermediate timing points are computed by {@link SplitEngine} when the table
+ * is built.
+ * <p>
+ * A table is built from the merged and ranked {@link CategoryResult}s, which
+ * it does not replace: it is what the results are printed, served and
+ * snapshotted from. During a live regatta, a {@link Builder} only encodes again
+ * the blocks of the changed categories.
+ * <p>
+ * A table may be a view over a subset of the blocks of another table
+ * ({@link #filter(Predicate)}), sharing the same columns.
+ *
+ * @author Jean-David Maillefer
+ */
+final class ResultTable {
+
+	/** Dictionary code of a {@code null} string. */
+	static final int NULL_CODE = -1;
+
+	static final ResultTable EMPTY = of(Collections.emptySortedMap());
+
+	/** Columns, shared between a table and its views. */
+	private static final class Columns {
+
+		/** Set once all strings are encoded. */
+		String[] dictionary;
+
+		final int[] eventRank;
+
+		final int[] categoryRank;
+
+		final int[] crew;
+
+		final int[] crewAbbrev;
+
+		final int[] category;
+
+		/** Packed category of the crew (see {@link LsmEventCategory#code()}). */
+		final int[] categoryCode;
+
+		final int[] start;
+
+		final int[] startMillis;
+
+		final int[] finishMillis;
+
+		final int[] adjTime;
+
+		final int[] adjTimeMillis;
+
+		final int[] deltaMillis;
+
+		/** Legs of the splits: intermediate points then finish, if any. */
+		final List<String> legs;
+
+		final int[] legMillis;
+
+		final int[] legRanks;
+
+		final int[] gapMillis;
+
+		Columns(final int nbRows, final List<String> legs) {
+			eventRank = new int[nbRows];
+			categoryRank = new int[nbRows];
+			crew = new int[nbRows];
+			crewAbbrev = new int[nbRows];
+			category = new int[nbRows];
+			categoryCode = new int[nbRows];
+			start = new int[nbRows];
+			startMillis = new int[nbRows];
+			finishMillis = new int[nbRows];
+			adjTime = new int[nbRows];
+			adjTimeMillis = new int[nbRows];
+			deltaMillis = new int[nbRows];
+			this.legs = legs;
+			legMillis = new int[nbRows * legs.size()];
+			legRanks = new int[nbRows * legs.size()];
+			gapMillis = new int[nbRows * legs.size()];
+		}
+
+		/**
+		 * @return the numeric columns, in the order of the snapshot format
+		 */
+		int[][] getIntColumns() {
+			return new int[][] { eventRank, categoryRank, crew, crewAbbrev,
+					category, categoryCode, start, startMillis, finishMillis,
+					adjTime, adjTimeMillis, deltaMillis, legMillis, legRanks,
+					gapMillis };
+		}
+	}
+
+	private final Columns columns;
+
+	private final EventCategoryKey[] keys;
+
+	/** First row of each block. */
+	private final int[] blockStarts;
+
+	/** Row after the last row of each block. */
+	private final int[] blockEnds;
+
+	private ResultTable(final Columns columns, final EventCategoryKey[] keys,
+			final int[] blockStarts, final int[] blockEnds) {
+		this.columns = columns;
+		this.keys = keys;
+		this.blockStarts = blockStarts;
+		this.blockEnds = blockEnds;
+	}
+
+	/**
+	 * Builds a table from ranked results.
+	 */
+	static ResultTable of(
+			final SortedMap<EventCategoryKey, List<CategoryResult>> results) {
+		final Map<String, Integer> codes = new HashMap<>();
+		final List<String> dictionary = new ArrayList<>();
+		final ResultTable res = build(results, codes, dictionary);
+		res.columns.dictionary = dictionary.toArray(String[]::new);
+		return res;
+	}
+
+	/**
+	 * @return a table whose strings are encoded in the given dictionary, which
+	 *         is not set
+	 */
+	private static ResultTable build(
+			final SortedMap<EventCategoryKey, List<CategoryResult>> results,
+			final Map<String, Integer> codes, final List<String> dictionary) {
+		final int nbRows = results.values().stream().mapToInt(List::size)
+				.sum();
+		// the points are shared by all the results
+		final List<String> points = results.values().stream()
+				.flatMap(List::stream).findFirst()
+				.map(cr -> cr.intermediatePoints).orElse(List.of());
+		final List<String> legs = points.isEmpty() ? List.of()
+				: Stream.concat(points.stream(), Stream.of(SplitEngine.FINISH))
+						.toList();
+		final int nbLegs = legs.size();
+		final Columns columns = new Columns(nbRows, legs);
+		final int[] passingMillis = new int[nbRows * nbLegs];
+
+		final EventCategoryKey[] keys = new EventCategoryKey[results.size()];
+		final int[] blockStarts = new int[keys.length];
+		final int[] blockEnds = new int[keys.length];
+		int block = 0;
+		int row = 0;
+		for (final Entry<EventCategoryKey, List<CategoryResult>> entry : results
+				.entrySet()) {
+			keys[block] = entry.getKey();
+			blockStarts[block] = row;
+			for (final CategoryResult cr : entry.getValue()) {
+				columns.eventRank[row] = cr.eventRank == null ? 0
+						: cr.eventRank;
+				columns.categoryRank[row] = cr.categoryRank == null ? 0
+						: cr.categoryRank;
+				columns.crew[row] = encode(cr.crew, codes, dictionary);
+				columns.crewAbbrev[row] = encode(cr.crewAbbrev,
+						codes,
+						dictionary);
+				columns.category[row] = encode(cr.category, codes, dictionary);
+				columns.categoryCode[row] = cr.getEventCategory().category()
+						.code();
+				columns.start[row] = encode(cr.start, codes, dictionary);
+				columns.adjTime[row] = encode(cr.adjTime, codes, dictionary);
+				columns.startMillis[row] = cr.startMillis;
+				columns.finishMillis[row] = cr.finishMillis;
+				columns.adjTimeMillis[row] = cr.adjTimeMillis;
+				columns.deltaMillis[row] = cr.deltaMillis;
+				if (nbLegs > 0) {
+					System.arraycopy(cr.intermediateMillis,
+							0,
+							passingMillis,
+							row * nbLegs,
+							nbLegs - 1);
+					passingMillis[row * nbLegs + nbLegs - 1] = RaceTimes
+							.parseMillisOrNoTime(cr.rawTime);
+				}
+				row++;
+			}
+			blockEnds[block] = row;
+			if (nbLegs > 0) {
+				SplitEngine.computeCategory(nbLegs,
+						blockStarts[block],
+						row,
+						passingMillis,
+						columns.legMillis,
+						columns.legRanks,
+						columns.gapMillis);
+			}
+			block++;
+		}
+		return new ResultTable(columns, keys, blockStarts, blockEnds);
+	}
+
+	/**
+	 * Builds tables incrementally: the block of a category is only encoded
+	 * (and its splits computed) when it is put, a table being assembled by
+	 * copying the columns of the blocks. The blocks share a dictionary, which
+	 * only grows. Not thread-safe, the tables built being immutable.
+	 */
+	static final class Builder {
+
+		private final Map<String, Integer> codes = new HashMap<>();
+
+		private final List<String> dictionary = new ArrayList<>();
+
+		/** Table of a single block, whose dictionary is not set. */
+		private final SortedMap<EventCategoryKey, ResultTable> blocks = new TreeMap<>();
+
+		/** Last table built, {@code null} if a block changed since. */
+		private ResultTable table;
+
+		/**
+		 * Adds or replaces the block of a category.
+		 *
+		 * @param rows
+		 *            the ranked results of the category
+		 */
+		void put(final EventCategoryKey key, final List<CategoryResult> rows) {
+			final SortedMap<EventCategoryKey, List<CategoryResult>> block = new TreeMap<>();
+			block.put(key, rows);
+			blocks.put(key, ResultTable.build(block, codes, dictionary));
+			table = null;
+		}
+
+		void remove(final EventCategoryKey key) {
+			if (blocks.remove(key) != null) {
+				table = null;
+			}
+		}
+
+		/**
+		 * @return the table of the current blocks
+		 * @throws IllegalStateException
+		 *             if the blocks have different legs
+		 */
+		ResultTable build() {
+			if (table != null) {
+				return table;
+			}
+			final List<String> legs = blocks.isEmpty() ? List.of()
+					: blocks.values().iterator().next().getLegs();
+			final int nbRows = blocks.values().stream()
+					.mapToInt(t -> t.getBlockEnd(0)).sum();
+			final Columns columns = new Columns(nbRows, legs);
+			final int[][] intColumns = columns.getIntColumns();
+			final int[] positions = new int[intColumns.length];
+			final EventCategoryKey[] keys = new EventCategoryKey[blocks.size()];
+			final int[] blockStarts = new int[keys.length];
+			final int[] blockEnds = new int[keys.length];
+			int block = 0;
+			int row = 0;
+			for (final ResultTable blockTable : blocks.values()) {
+				if (!blockTable.getLegs().equals(legs)) {
+					throw new IllegalStateException(String.format(
+							"Legs %s of %s differ from %s",
+							blockTable.getLegs(),
+							blockTable.getKey(0),
+							legs));
+				}
+				final int[][] blockColumns = blockTable.columns
+						.getIntColumns();
+				for (int c = 0; c < intColumns.length; c++) {
+					System.arraycopy(blockColumns[c],
+							0,
+							intColumns[c],
+							positions[c],
+							blockColumns[c].length);
+					positions[c] += blockColumns[c].length;
+				}
+				keys[block] = blockTable.getKey(0);
+				blockStarts[block] = row;
+				row += blockTable.getBlockEnd(0);
+				blockEnds[block] = row;
+				block++;
+			}
+			columns.dictionary = dictionary.toArray(String[]::new);
+			table = new ResultTable(columns, keys, blockStarts, blockEnds);
+			return table;
+		}
+	}
+
+	private static int encode(final String value,
+			final Map<String, Integer> codes, final List<String> dictionary) {
+		if (value == null) {
+			return NULL_CODE;
+		}
+		return codes.computeIfAbsent(value, v -> {
+			dictionary.add(v);
+			return dictionary.size() - 1;
+		});
+	}
+
+	/**
+	 * Writes the table in the format read by {@link #read(ByteBuffer,
+	 * RegattaContext)}: the dictionary, the legs, the blocks, then each
+	 * numeric column.
+	 */
+	void write(final DataOutput out) throws IOException {
+		out.writeInt(columns.dictionary.length);
+		for (final String value : columns.dictionary) {
+			writeString(out, value);
+		}
+		out.writeInt(columns.legs.size());
+		for (final String leg : columns.legs) {
+			writeString(out, leg);
+		}
+		out.writeInt(keys.length);
+		for (int block = 0; block < keys.length; block++) {
+			writeString(out, keys[block].event().emoji());
+			out.writeInt(keys[block].event().id());
+			writeString(out, keys[block].rawCategory());
+			out.writeInt(blockStarts[block]);
+			out.writeInt(blockEnds[block]);
+		}
+		out.writeInt(columns.eventRank.length);
+		for (final int[] column : columns.getIntColumns()) {
+			for (final int value : column) {
+				out.writeInt(value);
+			}
+		}
+	}
+
+	/**
+	 * Reads a table written by {@link #write(DataOutput)}, the numeric columns
+	 * being bulk copied from the buffer.
+	 *
+	 * @param context
+	 *            the regatta context, resolving the races of the events
+	 */
+	static ResultTable read(final ByteBuffer in, final RegattaContext context) {
+		final String[] dictionary = new String[in.getInt()];
+		for (int i = 0; i < dictionary.length; i++) {
+			dictionary[i] = readString(in);
+		}
+		final String[] legs = new String[in.getInt()];
+		for (int i = 0; i < legs.length; i++) {
+			legs[i] = readString(in);
+		}
+		final EventCategoryKey[] keys = new EventCategoryKey[in.getInt()];
+		final int[] blockStarts = new int[keys.length];
+		final int[] blockEnds = new int[keys.length];
+		for (int block = 0; block < keys.length; block++) {
+			final String emoji = readString(in);
+			final int id = in.getInt();
+			keys[block] = new EventCategoryKey(
+					new EventId(emoji, id, context.getRace(emoji)),
+					readString(in));
+			blockStarts[block] = in.getInt();
+			blockEnds[block] = in.getInt();
+		}
+		final Columns columns = new Columns(in.getInt(), List.of(legs));
+		for (final int[] column : columns.getIntColumns()) {
+			in.asIntBuffer().get(column);
+			in.position(in.position() + column.length * Integer.BYTES);
+		}
+		columns.dictionary = dictionary;
+		return new ResultTable(columns, keys, blockStarts, blockEnds);
+	}
+
+	/**
+	 * Writes the length of the UTF-8 bytes (-1 for {@code null}), then the
+	 * bytes.
+	 */
+	static void writeString(final DataOutput out, final String value)
+			throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(final ByteBuffer in) {
+		final int length = in.getInt();
+		if (length < 0) {
+			return null;
+		}
+		final byte[] bytes = new byte[length];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return a view on the blocks whose key matches the predicate
+	 */
+	ResultTable filter(final Predicate<EventCategoryKey> predicate) {
+		int nb = 0;
+		for (final EventCategoryKey key : keys) {
+			if (predicate.test(key)) {
+				nb++;
+			}
+		}
+		final EventCategoryKey[] filteredKeys = new EventCategoryKey[nb];
+		final int[] filteredStarts = new int[nb];
+		final int[] filteredEnds = new int[nb];
+		int i = 0;
+		for (int block = 0; block < keys.length; block++) {
+			if (predicate.test(keys[block])) {
+				filteredKeys[i] = keys[block];
+				filteredStarts[i] = blockStarts[block];
+				filteredEnds[i] = blockEnds[block];
+				i++;
+			}
+		}
+		return new ResultTable(columns, filteredKeys, filteredStarts,
+				filteredEnds);
+	}
+
+	int getNbBlocks() {
+		return keys.length;
+	}
+
+	EventCategoryKey getKey(final int block) {
+		return keys[block];
+	}
+
+	int getBlockStart(final int block) {
+		return blockStarts[block];
+	}
+
+	int getBlockEnd(final int block) {
+		return blockEnds[block];
+	}
+
+	int getBlockSize(final int block) {
+		return blockEnds[block] - blockStarts[block];
+	}
+
+	private String decode(final int code) {
+		return code == NULL_CODE ? null : columns.dictionary[code];
+	}
+
+	/**
+	 * @return the rank in the event, 0 if none
+	 */
+	int getEventRank(final int row) {
+		return columns.eventRank[row];
+	}
+
+	/**
+	 * @return the rank in the category, 0 if none
+	 */
+	int getCategoryRank(final int row) {
+		return columns.categoryRank[row];
+	}
+
+	String getCrew(final int row) {
+		return decode(columns.crew[row]);
+	}
+
+	String getCrewAbbrev(final int row) {
+		return decode(columns.crewAbbrev[row]);
+	}
+
+	String getCategory(final int row) {
+		return decode(columns.category[row]);
+	}
+
+	/**
+	 * @return the packed category of the crew, which may differ from the one
+	 *         of the block (e.g. masters merged into seniors)
+	 */
+	int getCategoryCode(final int row) {
+		return columns.categoryCode[row];
+	}
+
+	String getStart(final int row) {
+		return decode(columns.start[row]);
+	}
+
+	int getStartMillis(final int row) {
+		return columns.startMillis[row];
+	}
+
+	int getFinishMillis(final int row) {
+		return columns.finishMillis[row];
+	}
+
+	String getAdjTime(final int row) {
+		return decode(columns.adjTime[row]);
+	}
+
+	int getAdjTimeMillis(final int row) {
+		return columns.adjTimeMillis[row];
+	}
+
+	int getDeltaMillis(final int row) {
+		return columns.deltaMillis[row];
+	}
+
+	/**
+	 * @return the names of the legs of the splits (intermediate points, then
+	 *         finish), empty if there is no intermediate point
+	 */
+	List<String> getLegs() {
+		return columns.legs;
+	}
+
+	/**
+	 * @return the time of the leg, {@link RaceTimes#NO_TIME} if unknown
+	 */
+	int getLegMillis(final int row, final int leg) {
+		return columns.legMillis[row * columns.legs.size() + leg];
+	}
+
+	/**
+	 * @return the rank of the leg time in the category, 0 if none
+	 */
+	int getLegRank(final int row, final int leg) {
+		return columns.legRanks[row * columns.legs.size() + leg];
+	}
+
+	/**
+	 * @return the gap to the first of the category at the end of the leg,
+	 *         {@link RaceTimes#NO_TIME} if none
+	 */
+	int getGapMillis(final int row, final int leg) {
+		return columns.gapMillis[row * columns.legs.size() + leg];
+	}
+
+}
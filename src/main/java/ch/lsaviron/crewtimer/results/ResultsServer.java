@@ -0,0 +1,514 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.zip.CRC32C;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import ch.lsaviron.crewtimer.results.EventId.Race;
+import ch.lsaviron.lsm.LsmEventCategory;
+
+/**
+ * Serves the results as HTML pages and JSON documents, on virtual threads:
+ * <ul>
+ * <li>{@code /}: the list of the races and categories</li>
+ * <li>{@code /race/<race>}: the results of a race (e.g.
+ * {@code /race/LAMANTIN})</li>
+ * <li>{@code /category/<race>/<event>/<category code>}: the results of a
+ * category in an event (e.g. {@code /category/LAMANTIN/1/...}), the race being
+ * {@value #NO_RACE} for events without race, since the event ids may restart
+ * for each race</li>
+ * </ul>
+ * Adding {@code .json} to the path (e.g. {@code /index.json}) gives the JSON
+ * document instead of the HTML page.
+ * <p>
+ * {@code /events} pushes the changes as Server-Sent Events: on each update, a
+ * {@code category} event per changed category, with its path and the new
+ * ranks, medals and deltas of its crews (or {@code "removed":true}). Each
+ * subscriber has a bounded queue: a subscriber not keeping up is disconnected
+ * (browsers reconnect automatically) instead of holding up the updates.
+ * <p>
+ * The rendered responses are cached with an ETag (so that browsers may
+ * revalidate them with {@code If-None-Match}) and only rendered again once
+ * {@link #update(ResultTable, Set)} reported a change in their categories.
+ *
+ * @author Jean-David Maillefer
+ */
+final class ResultsServer {
+
+	private static final String HTML_CONTENT_TYPE = "text/html; charset=utf-8";
+
+	private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+
+	private static final String JSON_SUFFIX = ".json";
+
+	private static final String EVENTS_PATH = "/events";
+
+	/** Race of the category paths of the events without race. */
+	private static final String NO_RACE = "-";
+
+	/** Number of events a subscriber may be late of before being dropped. */
+	static final int SUBSCRIBER_QUEUE_CAPACITY = 256;
+
+	/** Comment sent when idle, so that proxies keep the connection open. */
+	private static final byte[] KEEP_ALIVE = ":\n\n"
+			.getBytes(StandardCharsets.US_ASCII);
+
+	private static final long KEEP_ALIVE_SECONDS = 15;
+
+	private enum Kind {
+		INDEX, RACE, CATEGORY
+	}
+
+	/**
+	 * A view of the results, as parsed from a request path.
+	 *
+	 * @param race
+	 *            the race of a {@link Kind#RACE} or {@link Kind#CATEGORY}
+	 *            view, {@code null} for a category of an event without race
+	 * @param eventNum
+	 *            the event id of a {@link Kind#CATEGORY} view
+	 * @param categoryCode
+	 *            the category code of a {@link Kind#CATEGORY} view
+	 */
+	record View(Kind kind, Race race, int eventNum, int categoryCode,
+			boolean json) {
+
+		/**
+		 * @return the view of the path, {@code null} if unknown
+		 */
+		static View parse(final String path) {
+			String p = path;
+			final boolean json = p.endsWith(JSON_SUFFIX);
+			if (json) {
+				p = p.substring(0, p.length() - JSON_SUFFIX.length());
+			}
+			if (p.equals("/") || p.equals("/index")) {
+				return new View(Kind.INDEX, null, 0, 0, json);
+			}
+			final String[] parts = p.split("/", -1);
+			try {
+				if (parts.length == 3 && parts[1].equals("race")) {
+					return new View(Kind.RACE, Race.valueOf(parts[2]), 0, 0,
+							json);
+				}
+				if (parts.length == 5 && parts[1].equals("category")) {
+					return new View(Kind.CATEGORY,
+							parts[2].equals(NO_RACE) ? null
+									: Race.valueOf(parts[2]),
+							Integer.parseInt(parts[3]),
+							Integer.parseInt(parts[4]), json);
+				}
+			} catch (final IllegalArgumentException e) {
+				// unknown race or invalid number
+			}
+			return null;
+		}
+
+		/**
+		 * @return whether the view shows (or lists) the category
+		 */
+		boolean dependsOn(final EventCategoryKey key) {
+			return switch (kind) {
+			case INDEX -> true;
+			case RACE -> key.event().race() == race;
+			case CATEGORY -> matches(key);
+			};
+		}
+
+		/**
+		 * The spellings of a category in an event (e.g. {@code M C1x} and
+		 * {@code M C1X}, see {@link EventCategoryKey}) share the view on
+		 * purpose, a spectator looking for the category: each of them is still
+		 * ranked and shown separately.
+		 */
+		private boolean matches(final EventCategoryKey key) {
+			return key.event().race() == race && key.event().id() == eventNum
+					&& key.category().code() == categoryCode;
+		}
+
+		/**
+		 * @return the predicate selecting the results shown by the view
+		 */
+		Predicate<EventCategoryKey> filter() {
+			return switch (kind) {
+			case INDEX -> k -> true;
+			case RACE -> k -> k.event().race() == race;
+			case CATEGORY -> this::matches;
+			};
+		}
+	}
+
+	/**
+	 * A client of {@link #EVENTS_PATH}, served by its own (virtual) thread.
+	 */
+	private static final class Subscriber {
+
+		private final BlockingQueue<byte[]> events = new ArrayBlockingQueue<>(
+				SUBSCRIBER_QUEUE_CAPACITY);
+
+		private final Thread thread = Thread.currentThread();
+
+		/**
+		 * Stops the thread serving the subscriber, closing the connection.
+		 */
+		void close() {
+			thread.interrupt();
+		}
+	}
+
+	private record Rendered(byte[] body, String contentType, String etag) {
+	}
+
+	/**
+	 * Results being served, with their rendered views. A new snapshot is
+	 * created on each update, so that a view rendered from former results is
+	 * never cached with the current ones.
+	 */
+	private record Snapshot(ResultTable results,
+			Map<View, Rendered> cache) {
+	}
+
+	private final LSM lsm;
+
+	private volatile Snapshot snapshot = new Snapshot(ResultTable.EMPTY,
+			new ConcurrentHashMap<>());
+
+	private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+	/** Id of the last event pushed, only used by the ingest thread. */
+	private long lastEventId;
+
+	private HttpServer server;
+
+	private ExecutorService executor;
+
+	ResultsServer(final LSM lsm) {
+		this.lsm = lsm;
+	}
+
+	/**
+	 * Starts serving the results on the given port (0 for any free port).
+	 */
+	void start(final int port) throws IOException {
+		server = HttpServer.create(new InetSocketAddress(port), 0);
+		executor = Executors.newVirtualThreadPerTaskExecutor();
+		server.setExecutor(executor);
+		server.createContext("/", this::handle);
+		server.start();
+	}
+
+	/**
+	 * @return the port the results are served on
+	 */
+	int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	void stop() {
+		server.stop(0);
+		subscribers.forEach(Subscriber::close);
+		executor.close();
+	}
+
+	/**
+	 * @return the number of clients of the events
+	 */
+	int getNbSubscribers() {
+		return subscribers.size();
+	}
+
+	/**
+	 * Serves the given results. Only the cached views showing the changed
+	 * categories are dropped, then the changes are pushed to the subscribers.
+	 * Called by a single (ingest) thread.
+	 *
+	 * @param changedKeys
+	 *            the keys of the categories added, updated or removed since
+	 *            the previous update
+	 */
+	void update(final ResultTable results,
+			final Set<EventCategoryKey> changedKeys) {
+		final Map<View, Rendered> cache = new ConcurrentHashMap<>();
+		snapshot.cache().forEach((view, rendered) -> {
+			if (changedKeys.stream().noneMatch(view::dependsOn)) {
+				cache.put(view, rendered);
+			}
+		});
+		snapshot = new Snapshot(results, cache);
+		if (!subscribers.isEmpty()) {
+			for (final EventCategoryKey key : changedKeys) {
+				publish(renderEvent(results, key));
+			}
+		}
+	}
+
+	/**
+	 * Queues the event for each subscriber, without ever blocking: the
+	 * subscribers whose queue is full are dropped.
+	 */
+	private void publish(final byte[] event) {
+		for (final Subscriber subscriber : subscribers) {
+			if (!subscriber.events.offer(event)) {
+				subscribers.remove(subscriber);
+				subscriber.close();
+			}
+		}
+	}
+
+	/**
+	 * @return the Server-Sent Event of a changed category
+	 */
+	private byte[] renderEvent(final ResultTable results,
+			final EventCategoryKey key) {
+		final StringBuilder sb = new StringBuilder(512);
+		sb.append("id: ").append(++lastEventId)
+				.append("\nevent: category\ndata: {\"path\":");
+		JsonPrintHelper.appendString(sb, getPath(key));
+		final ResultTable categoryResults = results.filter(key::equals);
+		if (categoryResults.getNbBlocks() == 0) {
+			sb.append(",\"removed\":true");
+		} else {
+			sb.append(",\"races\":");
+			final PrintHelper printHelper = new JsonPrintHelper(sb, true);
+			lsm.printResults(categoryResults, printHelper);
+			printHelper.end();
+		}
+		sb.append("}\n\n");
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Same as {@link #update(ResultTable, Set)} with the current results of
+	 * a live regatta.
+	 */
+	void update(final LiveResults liveResults,
+			final Set<EventCategoryKey> changedKeys) {
+		update(liveResults.getResultTable(), changedKeys);
+	}
+
+	private void handle(final HttpExchange exchange) throws IOException {
+		try (exchange) {
+			final String method = exchange.getRequestMethod();
+			if (!method.equals("GET") && !method.equals("HEAD")) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+			final String path = exchange.getRequestURI().getPath();
+			if (path.equals(EVENTS_PATH) && method.equals("GET")) {
+				handleEvents(exchange);
+				return;
+			}
+			final View view = View.parse(path);
+			final Snapshot current = snapshot;
+			final Rendered rendered = view == null ? null
+					: current.cache().computeIfAbsent(view,
+							v -> render(current.results(), v));
+			if (rendered == null) {
+				exchange.sendResponseHeaders(404, -1);
+				return;
+			}
+			final Headers headers = exchange.getResponseHeaders();
+			headers.set("ETag", rendered.etag());
+			// always revalidated, the results change during the regatta
+			headers.set("Cache-Control", "no-cache");
+			if (isNotModified(exchange, rendered.etag())) {
+				exchange.sendResponseHeaders(304, -1);
+				return;
+			}
+			headers.set("Content-Type", rendered.contentType());
+			if (method.equals("HEAD")) {
+				exchange.sendResponseHeaders(200, -1);
+				return;
+			}
+			exchange.sendResponseHeaders(200, rendered.body().length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(rendered.body());
+			}
+		}
+	}
+
+	/**
+	 * Sends the events queued for the client until it disconnects or is
+	 * dropped.
+	 */
+	private void handleEvents(final HttpExchange exchange) throws IOException {
+		final Headers headers = exchange.getResponseHeaders();
+		headers.set("Content-Type", "text/event-stream; charset=utf-8");
+		headers.set("Cache-Control", "no-cache");
+		// subscribed before the response, so that no update is missed
+		final Subscriber subscriber = new Subscriber();
+		subscribers.add(subscriber);
+		try (OutputStream out = exchange.getResponseBody()) {
+			exchange.sendResponseHeaders(200, 0);
+			// so that the client knows it is subscribed
+			out.write(KEEP_ALIVE);
+			out.flush();
+			while (true) {
+				final byte[] event = subscriber.events.poll(KEEP_ALIVE_SECONDS,
+						TimeUnit.SECONDS);
+				out.write(event == null ? KEEP_ALIVE : event);
+				out.flush();
+			}
+		} catch (final InterruptedException e) {
+			// dropped or server stopped
+		} catch (final IOException e) {
+			// client gone
+		} finally {
+			subscribers.remove(subscriber);
+		}
+	}
+
+	/**
+	 * @return whether the client already has the response with the ETag
+	 */
+	private static boolean isNotModified(final HttpExchange exchange,
+			final String etag) {
+		final String ifNoneMatch = exchange.getRequestHeaders()
+				.getFirst("If-None-Match");
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		for (final String candidate : ifNoneMatch.split(",")) {
+			final String trimmed = candidate.strip();
+			// weak comparison, as required for If-None-Match
+			if (trimmed.equals("*") || trimmed.equals(etag)
+					|| trimmed.equals("W/" + etag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the rendered view, {@code null} if it shows no result
+	 */
+	private Rendered render(final ResultTable results, final View view) {
+		final StringBuilder sb = new StringBuilder(4096);
+		if (view.kind() == Kind.INDEX) {
+			if (view.json()) {
+				renderIndexJson(results, sb);
+			} else {
+				renderHtml(sb, "Résultats", () -> renderIndexHtml(results, sb));
+			}
+		} else {
+			final ResultTable viewResults = results.filter(view.filter());
+			if (viewResults.getNbBlocks() == 0) {
+				return null;
+			}
+			if (view.json()) {
+				final PrintHelper printHelper = new JsonPrintHelper(sb);
+				lsm.printResults(viewResults, printHelper);
+				printHelper.end();
+			} else {
+				final String title = view.kind() == Kind.RACE
+						? "Course " + view.race().getEmoji()
+						: getName(viewResults.getKey(0));
+				renderHtml(sb, title, () -> {
+					final PrintHelper printHelper = new HtmlPrintHelper(sb);
+					lsm.printResults(viewResults, printHelper);
+					printHelper.end();
+				});
+			}
+		}
+		final byte[] body = sb.toString().getBytes(StandardCharsets.UTF_8);
+		return new Rendered(body,
+				view.json() ? JSON_CONTENT_TYPE : HTML_CONTENT_TYPE,
+				etag(body));
+	}
+
+	private static void renderHtml(final StringBuilder sb, final String title,
+			final Runnable body) {
+		sb.append("<!DOCTYPE html>\n<html lang=\"fr\">\n<head>\n"
+				+ "<meta charset=\"utf-8\">\n"
+				+ "<meta name=\"viewport\" content=\"width=device-width, initial-scale=1\">\n"
+				+ "<title>");
+		HtmlPrintHelper.appendEscaped(sb, title);
+		sb.append("</title>\n</head>\n<body>\n<h1>");
+		HtmlPrintHelper.appendEscaped(sb, title);
+		sb.append("</h1>\n");
+		body.run();
+		sb.append("</body>\n</html>\n");
+	}
+
+	private static void renderIndexHtml(final ResultTable results,
+			final StringBuilder sb) {
+		sb.append("<ul>\n");
+		Race lastRace = null;
+		for (int block = 0; block < results.getNbBlocks(); block++) {
+			final EventCategoryKey key = results.getKey(block);
+			final Race race = key.event().race();
+			if (race != null && race != lastRace) {
+				sb.append("<li><a href=\"/race/").append(race.name())
+						.append("\">Course ").append(race.getEmoji())
+						.append("</a></li>\n");
+			}
+			lastRace = race;
+			sb.append("<li><a href=\"").append(getPath(key)).append("\">");
+			HtmlPrintHelper.appendEscaped(sb, getName(key));
+			sb.append("</a></li>\n");
+		}
+		sb.append("</ul>\n");
+	}
+
+	private static void renderIndexJson(final ResultTable results,
+			final StringBuilder sb) {
+		sb.append('[');
+		for (int block = 0; block < results.getNbBlocks(); block++) {
+			final EventCategoryKey key = results.getKey(block);
+			if (block > 0) {
+				sb.append(',');
+			}
+			sb.append("{\"name\":");
+			JsonPrintHelper.appendString(sb, getName(key));
+			sb.append(",\"race\":");
+			JsonPrintHelper.appendString(sb,
+					key.event().race() == null ? null
+							: key.event().race().name());
+			sb.append(",\"path\":");
+			JsonPrintHelper.appendString(sb, getPath(key));
+			sb.append('}');
+		}
+		sb.append(']');
+	}
+
+	private static String getName(final EventCategoryKey key) {
+		final LsmEventCategory category = key.category();
+		return LSM.toStandardCategory(category)
+				+ (category.swissChampionship() ? " 🏆🇨🇭" : "") + " (course "
+				+ key.event() + ")";
+	}
+
+	/**
+	 * @return the path of the category view (HTML)
+	 */
+	static String getPath(final EventCategoryKey key) {
+		final Race race = key.event().race();
+		return "/category/" + (race == null ? NO_RACE : race.name()) + "/"
+				+ key.event().id() + "/" + key.category().code();
+	}
+
+	/**
+	 * @return a strong ETag computed from the content
+	 */
+	private static String etag(final byte[] body) {
+		final CRC32C crc = new CRC32C();
+		crc.update(body);
+		return String.format("\"%x-%08x\"", body.length, crc.getValue());
+	}
+
+}
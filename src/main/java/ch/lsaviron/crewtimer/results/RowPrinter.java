@@ -0,0 +1,31 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.util.List;
+
+/**
+ * Receives the rows of the results, race block by race block: a header, the
+ * result rows, then a footer.
+ *
+ * @author Jean-David Maillefer
+ */
+interface RowPrinter {
+
+	/**
+	 * @param legs
+	 *            the names of the legs of the splits to print, empty if none
+	 */
+	void printRaceHeader(String header, List<String> legs);
+
+	/**
+	 * @param deltaMillis
+	 *            the delta to the first of the category, or
+	 *            {@link RaceTimes#NO_TIME}
+	 * @param splits
+	 *            the formatted splits of each leg, empty if none
+	 */
+	void printResultRow(int categoryRank, String medals, String crewAbbrev,
+			String crew, String adjTime, int deltaMillis, List<String> splits);
+
+	void printRaceFooter();
+
+}
@@ -1,11 +1,6 @@
 package ch.lsaviron.crewtimer.results;
 
-import java.util.List;
-import java.util.SortedMap;
-
-record SimpleSubResult(
-		SortedMap<EventCategoryKey, List<CategoryResult>> results)
-		implements SubResult {
+record SimpleSubResult(ResultTable results) implements SubResult {
 
 	@Override
 	public void init() {
@@ -18,7 +13,7 @@ record SimpleSubResult(
 	}
 
 	@Override
-	public SortedMap<EventCategoryKey, List<CategoryResult>> getResults() {
+	public ResultTable getResults() {
 		return results;
 	}
 }
\ No newline at end of file
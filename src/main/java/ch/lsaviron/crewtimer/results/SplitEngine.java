@@ -0,0 +1,111 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.util.Arrays;
+
+/**
+ * Split analytics of the intermediate timing points (e.g. buoys): time of each
+ * leg, rank of each leg in the category and gap to the leader of the category
+ * at each point, the last leg ending at the finish.
+ * <p>
+ * Times are held in flat {@code int} arrays with {@code nbLegs} values per row
+ * (value of row {@code r} for leg {@code l} at index
+ * {@code r * nbLegs + l}), the names of the points being shared by all the
+ * rows. A category is processed in one pass per leg, plus a sort of its leg
+ * times to rank them.
+ *
+ * @author Jean-David Maillefer
+ */
+final class SplitEngine {
+
+	/** Name of the last leg. */
+	static final String FINISH = "Arrivée";
+
+	private SplitEngine() {
+		// utility class
+	}
+
+	/**
+	 * Computes the splits of the rows {@code from} (inclusive) to {@code to}
+	 * (exclusive) of a category.
+	 *
+	 * @param passingMillis
+	 *            time since the start at the end of each leg,
+	 *            {@link RaceTimes#NO_TIME} if none
+	 * @param legMillis
+	 *            out: time of each leg, {@link RaceTimes#NO_TIME} if unknown
+	 * @param legRanks
+	 *            out: rank of each leg time in the category (equal times
+	 *            having the same rank), 0 if none
+	 * @param gapMillis
+	 *            out: gap to the first of the category at the end of each
+	 *            leg, {@link RaceTimes#NO_TIME} if none
+	 */
+	static void computeCategory(final int nbLegs, final int from, final int to,
+			final int[] passingMillis, final int[] legMillis,
+			final int[] legRanks, final int[] gapMillis) {
+		// leg time in the high bits, row in the low ones: sorts by leg time
+		final long[] sortedLegs = new long[to - from];
+		for (int leg = 0; leg < nbLegs; leg++) {
+			int best = RaceTimes.NO_TIME;
+			int nbLegTimes = 0;
+			for (int row = from; row < to; row++) {
+				final int i = row * nbLegs + leg;
+				final int passing = passingMillis[i];
+				final int previous = leg == 0 ? 0 : passingMillis[i - 1];
+				if (passing == RaceTimes.NO_TIME
+						|| previous == RaceTimes.NO_TIME) {
+					legMillis[i] = RaceTimes.NO_TIME;
+				} else {
+					legMillis[i] = passing - previous;
+					sortedLegs[nbLegTimes++] = (long) legMillis[i] << 32 | row;
+				}
+				legRanks[i] = 0;
+				if (passing != RaceTimes.NO_TIME
+						&& (best == RaceTimes.NO_TIME || passing < best)) {
+					best = passing;
+				}
+			}
+
+			for (int row = from; row < to; row++) {
+				final int i = row * nbLegs + leg;
+				gapMillis[i] = passingMillis[i] == RaceTimes.NO_TIME
+						? RaceTimes.NO_TIME
+						: passingMillis[i] - best;
+			}
+
+			Arrays.sort(sortedLegs, 0, nbLegTimes);
+			int rank = 0;
+			int lastLegTime = 0;
+			for (int k = 0; k < nbLegTimes; k++) {
+				final int legTime = (int) (sortedLegs[k] >> 32);
+				if (k == 0 || legTime != lastLegTime) {
+					rank = k + 1;
+					lastLegTime = legTime;
+				}
+				legRanks[(int) sortedLegs[k] * nbLegs + leg] = rank;
+			}
+		}
+	}
+
+	/**
+	 * Formats the split of a leg, e.g. {@code 08:01.2 (2) +00:12.2}: time of
+	 * the leg, its rank and the gap to the first at the end of the leg (if
+	 * any).
+	 *
+	 * @return an empty string if the leg time is unknown
+	 */
+	static String format(final int legMillis, final int legRank,
+			final int gapMillis) {
+		if (legMillis == RaceTimes.NO_TIME) {
+			return "";
+		}
+		final StringBuilder sb = new StringBuilder(20)
+				.append(RaceTimes.formatSplit(legMillis)).append(" (")
+				.append(legRank).append(')');
+		if (gapMillis > 0) {
+			sb.append(" +").append(RaceTimes.formatSplit(gapMillis));
+		}
+		return sb.toString();
+	}
+
+}
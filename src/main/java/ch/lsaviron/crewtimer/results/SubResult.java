@@ -1,7 +1,6 @@
 package ch.lsaviron.crewtimer.results;
 
 import java.util.List;
-import java.util.SortedMap;
 
 public interface SubResult {
 
@@ -9,6 +8,13 @@ public interface SubResult {
 
 	void end();
 
-	SortedMap<EventCategoryKey, List<CategoryResult>> getResults();
+	ResultTable getResults();
+
+	/**
+	 * @return the overall leaderboards, printed after the results
+	 */
+	default List<Leaderboard> getLeaderboards() {
+		return List.of();
+	}
 
 }
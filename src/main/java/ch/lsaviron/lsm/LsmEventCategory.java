@@ -1,11 +1,24 @@
 package ch.lsaviron.lsm;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
 import ch.lsaviron.swissrowing.AgeCategory;
 import ch.lsaviron.swissrowing.EventCategory;
 
+/**
+ * Category of the Léman sur mer regatta. The instances returned by
+ * {@link #parse(String)} and the {@code with...} methods are canonical: two
+ * equal categories are the same instance.
+ */
 public record LsmEventCategory(boolean open, EventCategory eventCategory,
 		boolean swissChampionship) {
 
@@ -13,6 +26,27 @@ public record LsmEventCategory(boolean open, EventCategory eventCategory,
 
 	private static final String SWISS_CHAMPIONSHIP_CATEGORY = "*";
 
+	/**
+	 * Canonical instances. Bounded by the number of existing categories, so a
+	 * strong interner is fine.
+	 */
+	private static final Interner<LsmEventCategory> INTERNER = Interners
+			.newStrongInterner();
+
+	/**
+	 * Categories by raw string, bounded since raw strings come from the CSV
+	 * (e.g. different cases).
+	 */
+	private static final LoadingCache<String, LsmEventCategory> PARSE_CACHE = CacheBuilder
+			.newBuilder().maximumSize(1_000)
+			.build(CacheLoader.from(raw -> INTERNER.intern(parseRaw(raw))));
+
+	/**
+	 * Order of the names ({@link #toString()}) of all the categories that may
+	 * be encoded, indexed by {@link #code()}.
+	 */
+	private static final int[] NAME_ORDER = buildNameOrder();
+
 	public static final List<LsmEventCategory> EVENT_CATEGORIES = List.of(
 			parse("M C1x"),
 			parse("M C1x*"),
@@ -47,9 +81,14 @@ public record LsmEventCategory(boolean open, EventCategory eventCategory,
 			parse("W C2x"),
 			parse("W C4x+"));
 
-	public static final Comparator<LsmEventCategory> BY_EXPECTED_SPEED_COMPARATOR = Comparator
-			.comparing(LsmEventCategory::eventCategory,
-					EventCategory.BY_EXPECTED_SPEED_COMPARATOR);
+	/** Bits of {@link #code()} above the ones of {@link EventCategory}. */
+	public static final int OPEN_MASK = 1 << EventCategory.CODE_BITS;
+
+	public static final int SWISS_CHAMPIONSHIP_MASK = 1 << EventCategory.CODE_BITS
+			+ 1;
+
+	public static final Comparator<LsmEventCategory> BY_EXPECTED_SPEED_COMPARATOR = (
+			a, b) -> EventCategory.compareByExpectedSpeed(a.code(), b.code());
 
 	@Override
 	public String toString() {
@@ -64,13 +103,94 @@ public record LsmEventCategory(boolean open, EventCategory eventCategory,
 		return sb.toString();
 	}
 
-	public static Comparator<LsmEventCategory> EXPECTED_SPEED_COMPARATOR = Comparator
-			.comparing(LsmEventCategory::eventCategory,
-					EventCategory.EXPECTED_SPEED_COMPARATOR)
-			.thenComparing(LsmEventCategory::swissChampionship,
-					Comparator.reverseOrder());
+	public static Comparator<LsmEventCategory> EXPECTED_SPEED_COMPARATOR = (a,
+			b) -> compareByExpectedSpeed(a.code(), b.code());
 
+	/**
+	 * @return the category packed in an int, see {@link EventCategory#code()}
+	 */
+	public int code() {
+		return eventCategory.code() | (open ? OPEN_MASK : 0)
+				| (swissChampionship ? SWISS_CHAMPIONSHIP_MASK : 0);
+	}
+
+	/**
+	 * @return the rank of the name of this category among all category names,
+	 *         so that comparing ranks is the same as comparing names
+	 *         (changing this order changes the results snapshots of
+	 *         {@code ch.lsaviron.crewtimer.results}: increment their schema
+	 *         version)
+	 */
+	public int nameOrder() {
+		return NAME_ORDER[code()];
+	}
+
+	private static int[] buildNameOrder() {
+		final int nbCodes = SWISS_CHAMPIONSHIP_MASK << 1;
+		final List<LsmEventCategory> categories = new ArrayList<>();
+		for (int code = 0; code < nbCodes; code++) {
+			if (EventCategory.isValidCode(code)) {
+				categories.add(new LsmEventCategory((code & OPEN_MASK) != 0,
+						EventCategory.fromCode(code),
+						(code & SWISS_CHAMPIONSHIP_MASK) != 0));
+			}
+		}
+		categories.sort(Comparator.comparing(LsmEventCategory::toString));
+		final int[] res = new int[nbCodes];
+		int order = 0;
+		String previousName = null;
+		for (final LsmEventCategory category : categories) {
+			final String name = category.toString();
+			if (previousName != null && !name.equals(previousName)) {
+				order++;
+			}
+			res[category.code()] = order;
+			previousName = name;
+		}
+		return res;
+	}
+
+	/**
+	 * @return the canonical category packed by {@link #code()}
+	 */
+	public static LsmEventCategory fromCode(final int code) {
+		return INTERNER.intern(new LsmEventCategory((code & OPEN_MASK) != 0,
+				EventCategory.fromCode(code),
+				(code & SWISS_CHAMPIONSHIP_MASK) != 0));
+	}
+
+	/**
+	 * Compares packed categories like
+	 * {@link EventCategory#compareByExpectedSpeed(int, int)}, then Swiss
+	 * championship first.
+	 */
+	public static int compareByExpectedSpeed(final int code1,
+			final int code2) {
+		final int res = EventCategory.compareByExpectedSpeed(code1, code2);
+		if (res != 0) {
+			return res;
+		}
+		return Integer.compare(code2 & SWISS_CHAMPIONSHIP_MASK,
+				code1 & SWISS_CHAMPIONSHIP_MASK);
+	}
+
+	/**
+	 * @return the canonical category
+	 * @throws IllegalArgumentException
+	 *             if the category cannot be parsed
+	 */
 	public static LsmEventCategory parse(final String raw) {
+		try {
+			return PARSE_CACHE.getUnchecked(raw);
+		} catch (final UncheckedExecutionException e) {
+			if (e.getCause() instanceof final RuntimeException cause) {
+				throw cause;
+			}
+			throw e;
+		}
+	}
+
+	private static LsmEventCategory parseRaw(final String raw) {
 		int startIdx = 0;
 		int endIdx = raw.length();
 		boolean open = false;
@@ -88,9 +208,21 @@ public record LsmEventCategory(boolean open, EventCategory eventCategory,
 				swissChampionship);
 	}
 
+	/**
+	 * @return the canonical category
+	 */
 	public LsmEventCategory withAgeCategory(final AgeCategory ageCategory) {
-		return new LsmEventCategory(open,
-				eventCategory.withAgeCategory(ageCategory), swissChampionship);
+		return INTERNER.intern(new LsmEventCategory(open,
+				eventCategory.withAgeCategory(ageCategory), swissChampionship));
+	}
+
+	/**
+	 * @return the canonical category
+	 */
+	public LsmEventCategory withSwissChampionship(
+			final boolean swissChampionship) {
+		return INTERNER.intern(new LsmEventCategory(open, eventCategory,
+				swissChampionship));
 	}
 
 }
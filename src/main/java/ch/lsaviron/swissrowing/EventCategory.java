@@ -6,9 +6,38 @@ import java.util.Locale;
 public record EventCategory(AgeCategory age, SexCategory sex,
 		RowingCategory rowing, int rowers, OarCategory oar, boolean coxed) {
 
-	public static final Comparator<EventCategory> BY_EXPECTED_SPEED_COMPARATOR = Comparator
-			.comparing(EventCategory::rowers).reversed()
-			.thenComparing(EventCategory::sex);
+	// Packed code (see code()): each dimension has its own bits, so that
+	// categories can be filtered by dimension with a mask.
+
+	private static final int COXED_SHIFT = 0;
+
+	private static final int OAR_SHIFT = 1;
+
+	private static final int ROWING_SHIFT = 2;
+
+	private static final int AGE_SHIFT = 3;
+
+	private static final int SEX_SHIFT = 5;
+
+	private static final int ROWERS_SHIFT = 7;
+
+	public static final int COXED_MASK = 1 << COXED_SHIFT;
+
+	public static final int OAR_MASK = 1 << OAR_SHIFT;
+
+	public static final int ROWING_MASK = 1 << ROWING_SHIFT;
+
+	public static final int AGE_MASK = 0b11 << AGE_SHIFT;
+
+	public static final int SEX_MASK = 0b11 << SEX_SHIFT;
+
+	public static final int ROWERS_MASK = 0b1111 << ROWERS_SHIFT;
+
+	/** Number of low bits used by {@link #code()}. */
+	public static final int CODE_BITS = 11;
+
+	public static final Comparator<EventCategory> BY_EXPECTED_SPEED_COMPARATOR = (
+			a, b) -> compareByExpectedSpeed(a.code(), b.code());
 
 	@Override
 	public String toString() {
@@ -27,9 +56,56 @@ public record EventCategory(AgeCategory age, SexCategory sex,
 		return sb.toString();
 	}
 
-	public static Comparator<EventCategory> EXPECTED_SPEED_COMPARATOR = Comparator
-			.comparing(EventCategory::rowers).reversed()
-			.thenComparing(EventCategory::sex);
+	public static Comparator<EventCategory> EXPECTED_SPEED_COMPARATOR = BY_EXPECTED_SPEED_COMPARATOR;
+
+	/**
+	 * @return the category packed in the {@link #CODE_BITS} low bits of an
+	 *         int
+	 */
+	public int code() {
+		return (coxed ? COXED_MASK : 0) | oar.ordinal() << OAR_SHIFT
+				| rowing.ordinal() << ROWING_SHIFT
+				| age.ordinal() << AGE_SHIFT | sex.ordinal() << SEX_SHIFT
+				| rowers << ROWERS_SHIFT;
+	}
+
+	/**
+	 * @return the category packed by {@link #code()}
+	 */
+	public static EventCategory fromCode(final int code) {
+		return new EventCategory(
+				AgeCategory.values()[(code & AGE_MASK) >>> AGE_SHIFT],
+				SexCategory.values()[(code & SEX_MASK) >>> SEX_SHIFT],
+				RowingCategory.values()[(code & ROWING_MASK) >>> ROWING_SHIFT],
+				(code & ROWERS_MASK) >>> ROWERS_SHIFT,
+				OarCategory.values()[(code & OAR_MASK) >>> OAR_SHIFT],
+				(code & COXED_MASK) != 0);
+	}
+
+	/**
+	 * @return whether the low bits of the given code are a category packed by
+	 *         {@link #code()}
+	 */
+	public static boolean isValidCode(final int code) {
+		return (code & AGE_MASK) >>> AGE_SHIFT < AgeCategory.values().length
+				&& (code & SEX_MASK) >>> SEX_SHIFT < SexCategory.values().length
+				&& (code & ROWING_MASK) >>> ROWING_SHIFT < RowingCategory
+						.values().length
+				&& (code & OAR_MASK) >>> OAR_SHIFT < OarCategory.values().length;
+	}
+
+	/**
+	 * Compares packed categories: more rowers first, then by sex.
+	 */
+	public static int compareByExpectedSpeed(final int code1,
+			final int code2) {
+		final int res = Integer.compare(code2 & ROWERS_MASK,
+				code1 & ROWERS_MASK);
+		if (res != 0) {
+			return res;
+		}
+		return Integer.compare(code1 & SEX_MASK, code2 & SEX_MASK);
+	}
 
 	public static EventCategory parse(final String raw) {
 		final int startIdx = 0;
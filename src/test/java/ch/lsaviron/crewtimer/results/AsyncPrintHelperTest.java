@@ -0,0 +1,143 @@
+package ch.lsaviron.crewtimer.results;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+class AsyncPrintHelperTest {
+
+	/**
+	 * Print helper failing with an error on the given row, or on
+	 * {@link #end()} if the row is 0.
+	 */
+	private static final class FailingPrintHelper implements PrintHelper {
+
+		private final Error error;
+
+		private final int failingRow;
+
+		private int rows;
+
+		FailingPrintHelper(final Error error, final int failingRow) {
+			this.error = error;
+			this.failingRow = failingRow;
+		}
+
+		@Override
+		public void printRaceHeader(final String header,
+				final List<String> legs) {
+			// nothing to print
+		}
+
+		@Override
+		public void printResultRow(final int categoryRank, final String medals,
+				final String crewAbbrev, final String crew,
+				final String adjTime, final int deltaMillis,
+				final List<String> splits) {
+			if (++rows == failingRow) {
+				throw error;
+			}
+		}
+
+		@Override
+		public void printRaceFooter() {
+			// nothing to print
+		}
+
+		@Override
+		public void end() {
+			if (failingRow == 0) {
+				throw error;
+			}
+		}
+
+		@Override
+		public List<SubResult> getSubResults(final ResultTable results) {
+			return List.of();
+		}
+	}
+
+	private static void printRows(final PrintHelper helper, final int nbRows) {
+		helper.printRaceHeader("Course", List.of());
+		for (int i = 0; i < nbRows; i++) {
+			helper.printResultRow(i + 1, "", "LSA", "Lausanne", "34:36.6",
+					RaceTimes.NO_TIME, List.of());
+		}
+		helper.printRaceFooter();
+		helper.end();
+	}
+
+	@Test
+	@Timeout(value = 30, unit = TimeUnit.SECONDS)
+	final void testErrorWithMoreCallsThanQueue() {
+		final Error error = new OutOfMemoryError("Java heap space");
+		final IllegalStateException e = assertThrows(
+				IllegalStateException.class,
+				() -> {
+					try (AsyncPrintHelper helper = new AsyncPrintHelper(
+							new FailingPrintHelper(error, 10), "failing")) {
+						printRows(helper,
+								10 * AsyncPrintHelper.QUEUE_CAPACITY);
+					}
+				});
+		assertSame(error, e.getCause());
+	}
+
+	@Test
+	@Timeout(value = 30, unit = TimeUnit.SECONDS)
+	final void testErrorOnLastCall() {
+		final Error error = new StackOverflowError();
+		final AsyncPrintHelper helper = new AsyncPrintHelper(
+				new FailingPrintHelper(error, 0), "failing");
+		// last call: only reported by close()
+		printRows(helper, 20);
+		final IllegalStateException e = assertThrows(
+				IllegalStateException.class,
+				helper::close);
+		assertSame(error, e.getCause());
+	}
+
+	@Test
+	@Timeout(value = 30, unit = TimeUnit.SECONDS)
+	final void testRuntimeException() {
+		final IllegalArgumentException failure = new IllegalArgumentException();
+		final AsyncPrintHelper helper = new AsyncPrintHelper(
+				new PrintHelper() {
+
+					@Override
+					public void printRaceHeader(final String header,
+							final List<String> legs) {
+						throw failure;
+					}
+
+					@Override
+					public void printResultRow(final int categoryRank,
+							final String medals, final String crewAbbrev,
+							final String crew, final String adjTime,
+							final int deltaMillis, final List<String> splits) {
+						// nothing to print
+					}
+
+					@Override
+					public void printRaceFooter() {
+						// nothing to print
+					}
+
+					@Override
+					public List<SubResult> getSubResults(
+							final ResultTable results) {
+						return List.of();
+					}
+				}, "failing");
+		printRows(helper, 1);
+		assertEquals(failure,
+				assertThrows(IllegalArgumentException.class, helper::close));
+	}
+
+}
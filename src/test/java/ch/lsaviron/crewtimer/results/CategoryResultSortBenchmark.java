@@ -0,0 +1,132 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import ch.lsaviron.crewtimer.results.EventId.Race;
+import ch.lsaviron.lsm.LsmEventCategory;
+
+/**
+ * Cost of sorting 100k synthetic results and of inserting their keys in a
+ * {@link TreeMap}, with the precomputed sort keys compared to the former
+ * comparators chaining key extractors on each comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CategoryResultSortBenchmark {
+
+	private static final int NB_ROWS = 100_000;
+
+	private static final int YEAR = 2024;
+
+	/** {@link CategoryResult#compareTo} as it was before the sort keys. */
+	private static final Comparator<CategoryResult> LEGACY_RESULT_COMPARATOR = (
+			a, b) -> Comparator
+					.<CategoryResult, EventId>comparing(cr -> cr.event,
+							EventId.COMPARATOR)
+					.thenComparing(cr -> cr.category)
+					.thenComparing(Comparator.comparing(cr -> cr.eventRank,
+							Comparator.nullsLast(Comparator.naturalOrder())))
+					.thenComparingInt(
+							cr -> cr.finishMillis == RaceTimes.NO_TIME
+									? Integer.MAX_VALUE
+									: cr.finishMillis)
+					.compare(a, b);
+
+	/** {@link EventCategoryKey#compareTo} as it was before the sort keys. */
+	private static final Comparator<EventCategoryKey> LEGACY_KEY_COMPARATOR = (
+			a, b) -> Comparator
+					.comparing(EventCategoryKey::event, EventId.COMPARATOR)
+					.thenComparing(EventCategoryKey::rawCategory)
+					.compare(a, b);
+
+	@Param({ "LEGACY", "CURRENT" })
+	public String comparator;
+
+	private Comparator<CategoryResult> resultComparator;
+
+	private Comparator<EventCategoryKey> keyComparator;
+
+	private List<CategoryResult> results;
+
+	@Setup
+	public void setUp() {
+		final boolean legacy = comparator.equals("LEGACY");
+		resultComparator = legacy ? LEGACY_RESULT_COMPARATOR
+				: Comparator.naturalOrder();
+		keyComparator = legacy ? LEGACY_KEY_COMPARATOR
+				: Comparator.naturalOrder();
+		final RegattaContext context = new RegattaContext(YEAR);
+		final List<Race> races = Arrays.stream(Race.values())
+				.filter(r -> r.getYear() == YEAR).toList();
+		final List<LsmEventCategory> categories = LsmEventCategory.EVENT_CATEGORIES;
+		final Random random = new Random(42);
+		results = new ArrayList<>(NB_ROWS);
+		for (int i = 0; i < NB_ROWS; i++) {
+			final Race race = races.get(random.nextInt(races.size()));
+			final int start = 10 * RaceTimes.MILLIS_PER_HOUR;
+			final int adjTime = 25 * RaceTimes.MILLIS_PER_MINUTE
+					+ random.nextInt(15 * RaceTimes.MILLIS_PER_MINUTE);
+			results.add(new CategoryResult(
+					EventId.from(
+							race.getEmoji() + " " + (1 + random.nextInt(20)),
+							context),
+					"event", 1 + random.nextInt(50), "crew " + i, "C " + i,
+					categories.get(random.nextInt(categories.size()))
+							.toString(),
+					RaceTimes.formatTimeOfDay(start), List.of(), new int[0],
+					RaceTimes.formatTimeOfDay(
+							RaceTimes.plus(start, adjTime)),
+					RaceTimes.formatDuration(adjTime), null, null,
+					RaceTimes.formatDuration(adjTime)));
+		}
+	}
+
+	@Benchmark
+	public List<CategoryResult> sort() {
+		final List<CategoryResult> res = new ArrayList<>(results);
+		res.sort(resultComparator);
+		return res;
+	}
+
+	@Benchmark
+	public TreeMap<EventCategoryKey, CategoryResult> treeMapInserts() {
+		final TreeMap<EventCategoryKey, CategoryResult> res = new TreeMap<>(
+				keyComparator);
+		for (final CategoryResult cr : results) {
+			res.put(cr.getEventCategory(), cr);
+		}
+		return res;
+	}
+
+	public static void main(final String... args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(CategoryResultSortBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+
+}
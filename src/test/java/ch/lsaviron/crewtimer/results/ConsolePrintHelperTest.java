@@ -0,0 +1,52 @@
+package ch.lsaviron.crewtimer.results;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ConsolePrintHelperTest {
+
+	private static String print(final PrintMode printMode) {
+		final PrintStream sysout = System.out;
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try {
+			System.setOut(new PrintStream(baos));
+			final PrintHelper helper = printMode.buildHelper(null);
+			helper.printRaceHeader("Course Ω", List.of("Bouée_A", "Arrivée"));
+			helper.printResultRow(1, "🥇", "LSA 1", "Lausanne", "34:36.6",
+					RaceTimes.NO_TIME, List.of("07:45.6 (1)", "26:51.0 (1)"));
+			helper.printResultRow(2, "", "RCL", "Club à Lutry", null, 75_400,
+					List.of("", ""));
+			helper.printRaceFooter();
+			helper.end();
+		} finally {
+			System.setOut(sysout);
+		}
+		return baos.toString(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	final void testScreen() {
+		final String n = System.lineSeparator();
+		assertEquals(n + "Course Ω" + n + "--------------------------" + n
+				+ "1: 🥇\tLSA 1\tLausanne\t34:36.6\t\t07:45.6 (1)\t26:51.0 (1)" + n
+				+ "2: \tRCL\tClub à Lutry\t(inconnu)\t+01:15.4\t\t" + n + n,
+				print(PrintMode.SCREEN));
+	}
+
+	@Test
+	final void testTsv() {
+		final String n = System.lineSeparator();
+		assertEquals("Course Ω" + n
+				+ "Rang\tM\tNom court\tEquipe\tTemps\tDifférence\tBouée_A\tArrivée" + n
+				+ "1\t🥇\tLSA 1\tLausanne\t34:36.6\t'\t07:45.6 (1)\t26:51.0 (1)" + n
+				+ "2\t\tRCL\tClub à Lutry\t(inconnu)\t'+01:15.4\t\t" + n + n,
+				print(PrintMode.TSV));
+	}
+
+}
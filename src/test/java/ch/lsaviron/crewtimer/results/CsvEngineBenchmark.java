@@ -0,0 +1,64 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the CSV engines on the CrewTimer exports found in
+ * {@code src/main/data}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvEngineBenchmark {
+
+	@Param({ "2023:src/main/data/r12944.csv",
+			"2024:src/main/data/r13930.csv" })
+	public String yearAndFile;
+
+	@Param({ "COMMONS_CSV", "MAPPED" })
+	public String csvEngine;
+
+	private LSM lsm;
+
+	@Setup
+	public void setUp() {
+		final String[] yearFile = yearAndFile.split(":", 2);
+		lsm = new LSM(yearFile[1], PrintMode.SCREEN,
+				new RegattaContext(Integer.parseInt(yearFile[0])))
+				.setCsvEngine(CsvEngine.valueOf(csvEngine));
+	}
+
+	@Benchmark
+	public SortedMap<EventCategoryKey, List<CategoryResult>> readRawResults()
+			throws IOException {
+		return lsm.readRawResultsFromCsv();
+	}
+
+	public static void main(final String... args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(CsvEngineBenchmark.class.getSimpleName()).build())
+				.run();
+	}
+
+}
@@ -0,0 +1,152 @@
+package ch.lsaviron.crewtimer.results;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import ch.lsaviron.crewtimer.results.CsvEngine.Row;
+
+class CsvSchemaTest {
+
+	private static Row row(final String... values) {
+		return new Row() {
+
+			@Override
+			public int size() {
+				return values.length;
+			}
+
+			@Override
+			public String get(final int index) {
+				return values[index];
+			}
+		};
+	}
+
+	private static Row header(final Path csv) throws IOException {
+		final String firstLine = Files.readAllLines(csv).get(0);
+		return row(firstLine.replace("\"", "").split(","));
+	}
+
+	@Test
+	final void testIntermediatePoints() throws Exception {
+		assertEquals(List.of("Bouée_A", "Bouée_C"),
+				CsvSchema.of(header(Path.of("src/main/data/r12944.csv")))
+						.getIntermediatePoints());
+		assertEquals(List.of(),
+				CsvSchema.of(header(Path.of("src/main/data/r13930.csv")))
+						.getIntermediatePoints());
+	}
+
+	@Test
+	final void testColumns() throws Exception {
+		// columns in another order, an unknown column after the times
+		final CsvSchema schema = CsvSchema.of(row("Crew", "EventNum", "Event",
+				"Place", "CrewAbbrev", "Bow", "Stroke", "Start", "Bouée_B",
+				"Finish", "RawTime", "PenaltyCode", "AdjTime", "Delta",
+				"Note"));
+		assertEquals(15, schema.getNbColumns());
+		assertEquals(List.of("Bouée_B"), schema.getIntermediatePoints());
+		final Row record = row("LSA 1", "🦭 1", "U19W C4x+", "2", "LSA",
+				null, "U19W C4x+", "10:15:00.1", "07:45.6", "10:50:01.0",
+				"35:00.9", null, "35:00.9", "00:10.0", "x");
+		assertEquals("LSA 1", schema.get(record, CsvResultHeaders.Crew));
+		assertEquals("10:15:00.1",
+				schema.get(record, CsvResultHeaders.Start));
+		assertEquals(2, schema.getInteger(record, CsvResultHeaders.Place));
+		assertEquals(null,
+				schema.getInteger(record, CsvResultHeaders.PenaltyCode));
+		assertArrayEquals(new int[] { 7 * 60_000 + 45_600 },
+				schema.getIntermediateMillis(record));
+	}
+
+	@Test
+	final void testByteOrderMark() throws Exception {
+		final String[] names = { "EventNum", "Event", "Place", "Crew",
+				"CrewAbbrev", "Bow", "Stroke", "Start", "Finish", "RawTime",
+				"PenaltyCode", "AdjTime", "Delta" };
+		names[0] = "\uFEFFEventNum";
+		assertEquals(13, CsvSchema.of(row(names)).getNbColumns());
+		// as read by the engines from a quoted header
+		names[0] = "\uFEFF\"EventNum\"";
+		assertEquals("🦭 1", CsvSchema.of(row(names)).get(
+				row("🦭 1", "U19W C4x+", "1", "LSA 1", "LSA", null, null,
+						"10:15:00.0", null, null, null, null, null),
+				CsvResultHeaders.EventNum));
+	}
+
+	/**
+	 * A CSV re-saved with a byte order mark is read too.
+	 */
+	@ParameterizedTest
+	@EnumSource(CsvEngine.class)
+	final void testByteOrderMarkInCsv(final CsvEngine csvEngine,
+			@TempDir final Path dir) throws Exception {
+		final Path csv = dir.resolve("r13930.csv");
+		Files.writeString(csv, "\uFEFF"
+				+ Files.readString(Path.of("src/main/data/r13930.csv")),
+				StandardCharsets.UTF_8);
+
+		final SortedMap<EventCategoryKey, List<CategoryResult>> results = new LSM(
+				csv.toString(), PrintMode.SCREEN, new RegattaContext(2024))
+				.setCsvEngine(csvEngine).readRawResultsFromCsv();
+		final SortedMap<EventCategoryKey, List<CategoryResult>> expected = new LSM(
+				"src/main/data/r13930.csv", PrintMode.SCREEN,
+				new RegattaContext(2024)).readRawResultsFromCsv();
+		assertEquals(expected.keySet(), results.keySet());
+	}
+
+	@Test
+	final void testMissingColumn() {
+		assertThrows(IOException.class,
+				() -> CsvSchema.of(row("EventNum", "Event", "Place")));
+	}
+
+	/**
+	 * A timing point not known for the year is read too.
+	 */
+	@ParameterizedTest
+	@EnumSource(CsvEngine.class)
+	final void testNewTimingPoint(final CsvEngine csvEngine,
+			@TempDir final Path dir) throws Exception {
+		final Path csv = dir.resolve("r13930.csv");
+		final List<String> lines = Files
+				.readAllLines(Path.of("src/main/data/r13930.csv"));
+		// after the Finish column
+		final String content = lines.stream()
+				.map(line -> line.replaceFirst(
+						"^((?:\"[^\"]*\"|[^,\"]*)(?:,(?:\"[^\"]*\"|[^,\"]*)){8})",
+						"$1," + (line == lines.get(0) ? "\"Bouée_X\""
+								: "\"01:02.3\"")))
+				.collect(Collectors.joining("\n"));
+		Files.writeString(csv, content, StandardCharsets.UTF_8);
+
+		final SortedMap<EventCategoryKey, List<CategoryResult>> results = new LSM(
+				csv.toString(), PrintMode.SCREEN, new RegattaContext(2024))
+				.setCsvEngine(csvEngine).readRawResultsFromCsv();
+		final SortedMap<EventCategoryKey, List<CategoryResult>> expected = new LSM(
+				"src/main/data/r13930.csv", PrintMode.SCREEN,
+				new RegattaContext(2024)).readRawResultsFromCsv();
+		assertEquals(expected.keySet(), results.keySet());
+		for (final List<CategoryResult> crs : results.values()) {
+			for (final CategoryResult cr : crs) {
+				assertEquals(List.of("Bouée_X"), cr.intermediatePoints);
+				assertArrayEquals(new int[] { 62_300 }, cr.intermediateMillis);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,112 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.common.collect.Maps;
+
+import ch.lsaviron.crewtimer.results.EventId.Race;
+
+/**
+ * Cost of {@link EventId#COMPARATOR} when sorting the events of a synthetic
+ * 50k-row regatta, compared to the former comparator which indexed all races
+ * by emoji on each comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventIdComparatorBenchmark {
+
+	private static final int NB_ROWS = 50_000;
+
+	private static final int YEAR = 2024;
+
+	/** Comparator as it was before races were resolved at construction. */
+	private static final Comparator<EventId> LEGACY_COMPARATOR = Comparator
+			.comparing((final EventId eid) -> legacyFromEmoji(eid.emoji()),
+					Comparator.nullsFirst(Comparator.naturalOrder()))
+			.thenComparing(EventId::id,
+					Comparator.nullsFirst(Comparator.naturalOrder()));
+
+	@Param({ "LEGACY", "CURRENT" })
+	public String comparator;
+
+	private Comparator<EventId> eventIdComparator;
+
+	private List<EventId> eventIds;
+
+	@Setup
+	public void setUp() {
+		eventIdComparator = comparator.equals("LEGACY") ? LEGACY_COMPARATOR
+				: EventId.COMPARATOR;
+		final RegattaContext context = new RegattaContext(YEAR);
+		final List<Race> races = Arrays.stream(Race.values())
+				.filter(r -> r.getYear() == YEAR).toList();
+		final Random random = new Random(42);
+		eventIds = new ArrayList<>(NB_ROWS);
+		for (int i = 0; i < NB_ROWS; i++) {
+			final Race race = races.get(random.nextInt(races.size()));
+			eventIds.add(EventId.from(
+					race.getEmoji() + " " + (1 + random.nextInt(20)),
+					context));
+		}
+	}
+
+	@Benchmark
+	public List<EventId> sort() {
+		final List<EventId> res = new ArrayList<>(eventIds);
+		res.sort(eventIdComparator);
+		return res;
+	}
+
+	@Benchmark
+	public TreeMap<EventId, EventId> treeMapInserts() {
+		final TreeMap<EventId, EventId> res = new TreeMap<>(eventIdComparator);
+		for (final EventId eventId : eventIds) {
+			res.put(eventId, eventId);
+		}
+		return res;
+	}
+
+	private static Race legacyFromEmoji(final String emoji) {
+		if (emoji == null) {
+			return null;
+		}
+		final Map<String, Race> reverse = Maps.uniqueIndex(
+				Arrays.stream(Race.values()).filter(r -> r.getYear() == YEAR)
+						.iterator(),
+				Race::getEmoji);
+		return reverse.get(LSM.normalize(emoji));
+	}
+
+	public static void main(final String... args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(EventIdComparatorBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+
+}
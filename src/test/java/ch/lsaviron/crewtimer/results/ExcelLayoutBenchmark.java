@@ -0,0 +1,87 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Cost of laying out a sheet of distinct crews: measuring the height of each
+ * row with a new {@link ExcelLayout} (empty cache), then computing the page
+ * breaks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExcelLayoutBenchmark {
+
+	private static final int CREW_COLUMN_WIDTH = 18000;
+
+	@Param({ "5000" })
+	public int nbRows;
+
+	private String[] crews;
+
+	private int[] blockStarts;
+
+	@Setup
+	public void setUp() {
+		final Random random = new Random(42);
+		crews = new String[nbRows];
+		for (int i = 0; i < nbRows; i++) {
+			final StringBuilder sb = new StringBuilder("Club ").append(i)
+					.append(" (");
+			final int nbRowers = 1 + random.nextInt(5);
+			for (int j = 0; j < nbRowers; j++) {
+				sb.append(j == 0 ? "" : ", ").append("(").append(j)
+						.append(") Rower").append(random.nextInt(1000))
+						.append(" Name").append(random.nextInt(1000));
+			}
+			crews[i] = sb.append(')').toString();
+		}
+		// a race every 10 rows
+		blockStarts = new int[nbRows / 10];
+		for (int i = 0; i < blockStarts.length; i++) {
+			blockStarts[i] = i * 10;
+		}
+	}
+
+	@Benchmark
+	public List<Integer> layout() {
+		final ExcelLayout layout = new ExcelLayout("Trebuchet MS", 11);
+		final short[] heights = new short[nbRows];
+		for (int i = 0; i < nbRows; i++) {
+			heights[i] = layout.getWrappedRowHeight(crews[i],
+					CREW_COLUMN_WIDTH);
+		}
+		return ExcelLayout.computePageBreaks(heights,
+				0,
+				nbRows,
+				blockStarts,
+				20_000);
+	}
+
+	public static void main(final String... args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(ExcelLayoutBenchmark.class.getSimpleName()).build())
+				.run();
+	}
+
+}
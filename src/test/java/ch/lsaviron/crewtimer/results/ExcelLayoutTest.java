@@ -0,0 +1,69 @@
+package ch.lsaviron.crewtimer.results;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ExcelLayoutTest {
+
+	private final ExcelLayout layout = new ExcelLayout("Trebuchet MS", 11);
+
+	@Test
+	final void testCountLines() {
+		final float width = layout.getColumnWidth(18000);
+		assertEquals(1, layout.countLines("Rowing Club Lausanne 1", width));
+		final String crew = "Club Aviron Vésenaz 4 ((b) Khoury Aleksandar, (2) Andrey Romain, (3) Mejia Jan, (s) Velasco Santiago, (c) Dallaturia Marion)";
+		final int lines = layout.countLines(crew, width);
+		assertTrue(lines > 1, "" + lines);
+		assertTrue(layout.countLines(crew + " " + crew, width) > lines);
+		// a word longer than a line is broken
+		final int longWordLines = layout.countLines("x".repeat(1000), width);
+		assertTrue(longWordLines > 1, "" + longWordLines);
+		assertTrue(layout.countLines("x".repeat(1000),
+				width / 2) >= 2 * longWordLines - 1);
+	}
+
+	@Test
+	final void testWrappedRowHeight() {
+		final short oneLine = layout.getWrappedRowHeight("LSA 1", 18000);
+		assertEquals(layout.getRowHeight(11), oneLine);
+		assertEquals(oneLine, layout.getWrappedRowHeight(null, 18000));
+		final String crew = "Club Aviron Vésenaz 4 ((b) Khoury Aleksandar, (2) Andrey Romain, (3) Mejia Jan, (s) Velasco Santiago, (c) Dallaturia Marion)";
+		assertTrue(layout.getWrappedRowHeight(crew, 18000) > oneLine);
+		assertTrue(layout.getWrappedRowHeight(crew, 9000) > layout
+				.getWrappedRowHeight(crew, 18000));
+	}
+
+	@Test
+	final void testComputePageBreaks() {
+		final short[] heights = new short[35];
+		Arrays.fill(heights, (short) 100);
+		// blocks of 3 rows after 5 title rows: 2 blocks per page
+		final int[] blockStarts = { 5, 8, 11, 14, 17, 20, 23, 26, 29, 32 };
+		assertEquals(List.of(10, 16, 22, 28),
+				ExcelLayout.computePageBreaks(heights,
+						5,
+						35,
+						blockStarts,
+						700));
+	}
+
+	@Test
+	final void testComputePageBreaksTooTallBlock() {
+		final short[] heights = new short[20];
+		Arrays.fill(heights, (short) 100);
+		// a block of 12 rows does not fit on a page of 7 rows
+		final int[] blockStarts = { 0, 2, 14 };
+		assertEquals(List.of(1, 8, 13),
+				ExcelLayout.computePageBreaks(heights,
+						0,
+						20,
+						blockStarts,
+						700));
+	}
+
+}
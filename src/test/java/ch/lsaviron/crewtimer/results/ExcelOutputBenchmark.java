@@ -0,0 +1,167 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import ch.lsaviron.crewtimer.results.EventId.Race;
+import ch.lsaviron.lsm.LsmEventCategory;
+
+/**
+ * Time and peak heap usage of writing a workbook of synthetic results, with
+ * the in-memory {@link PrintMode#XLSX} mode compared to the streaming
+ * {@link PrintMode#XLSX_STREAMING} one, sequential or with the sheets prepared
+ * concurrently ({@code --parallel}). The {@code peakHeapMb} secondary result
+ * is summed over the measurement iterations by JMH: divide it by their number.
+ * The heap is limited so that the difference shows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+public class ExcelOutputBenchmark {
+
+	private static final int YEAR = 2024;
+
+	@Param({ "XLSX", "XLSX_STREAMING" })
+	public String printMode;
+
+	@Param({ "50000" })
+	public int nbRows;
+
+	@Param({ "1", "4" })
+	public int parallelism;
+
+	private Path dir;
+
+	private LSM lsm;
+
+	private ResultTable results;
+
+	private PrintStream sysout;
+
+	/** Peak heap usage, reset before each write. */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Memory {
+
+		public long peakHeapMb;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			System.gc();
+			heapPools().forEach(MemoryPoolMXBean::resetPeakUsage);
+			peakHeapMb = 0;
+		}
+
+		void measure() {
+			peakHeapMb = heapPools()
+					.mapToLong(p -> p.getPeakUsage().getUsed()).sum()
+					/ (1024 * 1024);
+		}
+
+		private static Stream<MemoryPoolMXBean> heapPools() {
+			return ManagementFactory.getMemoryPoolMXBeans().stream()
+					.filter(p -> p.getType() == MemoryType.HEAP);
+		}
+	}
+
+	@Setup
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("excel-benchmark");
+		lsm = new LSM(dir.resolve("results.csv").toString(),
+				PrintMode.valueOf(printMode),
+				new RegattaContext(YEAR)).setParallelism(parallelism);
+		results = ResultTable.of(buildResults(nbRows));
+		// the helpers print information lines
+		sysout = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+	}
+
+	private static SortedMap<EventCategoryKey, List<CategoryResult>> buildResults(
+			final int nbRows) {
+		final RegattaContext context = new RegattaContext(YEAR);
+		final List<Race> races = Arrays.stream(Race.values())
+				.filter(r -> r.getYear() == YEAR).toList();
+		final List<LsmEventCategory> categories = LsmEventCategory.EVENT_CATEGORIES;
+		final Random random = new Random(42);
+		final SortedMap<EventCategoryKey, List<CategoryResult>> res = new TreeMap<>();
+		for (int i = 0; i < nbRows; i++) {
+			final Race race = races.get(random.nextInt(races.size()));
+			final int start = 10 * RaceTimes.MILLIS_PER_HOUR;
+			final int adjTime = 25 * RaceTimes.MILLIS_PER_MINUTE
+					+ random.nextInt(15 * RaceTimes.MILLIS_PER_MINUTE);
+			final CategoryResult cr = new CategoryResult(
+					EventId.from(
+							race.getEmoji() + " " + (1 + random.nextInt(20)),
+							context),
+					"event", 1 + random.nextInt(50), "crew " + i, "C " + i,
+					categories.get(random.nextInt(categories.size()))
+							.toString(),
+					RaceTimes.formatTimeOfDay(start), List.of(), new int[0],
+					RaceTimes.formatTimeOfDay(RaceTimes.plus(start, adjTime)),
+					RaceTimes.formatDuration(adjTime), null, null,
+					RaceTimes.formatDuration(adjTime));
+			res.computeIfAbsent(cr.getEventCategory(), k -> new ArrayList<>())
+					.add(cr);
+		}
+		return res;
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		System.setOut(sysout);
+		try (var files = Files.list(dir)) {
+			for (final Path file : files.toList()) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(dir);
+	}
+
+	@Benchmark
+	public void write(final Memory memory) {
+		lsm.printResults(results);
+		memory.measure();
+	}
+
+	public static void main(final String... args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(ExcelOutputBenchmark.class.getSimpleName()).build())
+				.run();
+	}
+
+}
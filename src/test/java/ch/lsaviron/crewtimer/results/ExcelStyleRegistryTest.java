@@ -0,0 +1,86 @@
+package ch.lsaviron.crewtimer.results;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ch.lsaviron.crewtimer.results.ExcelStyleRegistry.FontKey;
+import ch.lsaviron.crewtimer.results.ExcelStyleRegistry.StyleKey;
+
+class ExcelStyleRegistryTest {
+
+	@Test
+	final void testGetStyle() throws Exception {
+		try (Workbook wb = WorkbookFactory.create(true)) {
+			final ExcelStyleRegistry styles = new ExcelStyleRegistry(wb);
+			final int nbStyles = wb.getNumCellStyles();
+			final int nbFonts = wb.getNumberOfFonts();
+
+			final FontKey font = new FontKey("Trebuchet MS", (short) 13, true,
+					false);
+			assertSame(styles.getFont(font), styles.getFont(new FontKey(
+					"Trebuchet MS", (short) 13, true, false)));
+			assertSame(styles.getStyle(font), styles.getStyle(new FontKey(
+					"Trebuchet MS", (short) 13, true, false)));
+			final StyleKey centered = new StyleKey(font,
+					HorizontalAlignment.CENTER, false);
+			assertNotSame(styles.getStyle(font), styles.getStyle(centered));
+			// the font is shared by both styles
+			assertEquals(styles.getStyle(font).getFontIndex(),
+					styles.getStyle(centered).getFontIndex());
+
+			assertEquals(nbStyles + 2, wb.getNumCellStyles());
+			assertEquals(nbFonts + 1, wb.getNumberOfFonts());
+		}
+	}
+
+	/**
+	 * Adding a sheet (the leaderboard) must not add styles.
+	 */
+	@Test
+	final void testConstantStyleTable(@TempDir final Path dir)
+			throws Exception {
+		final PrintStream sysout = System.out;
+		try (PrintStream out = new PrintStream(
+				OutputStream.nullOutputStream())) {
+			System.setOut(out);
+			final Path csv = dir.resolve("r13930.csv");
+			Files.copy(Path.of("src/main/data/r13930.csv"), csv);
+			final LSM lsm = new LSM(csv.toString(), PrintMode.XLSX,
+					new RegattaContext(2024));
+			lsm.printResults(lsm.computeResults());
+			final int[] twoSheets = countStyles(dir.resolve("r13930.xlsx"));
+			lsm.setLeaderboard(5, HandicapFactors.loadDefault());
+			lsm.printResults(lsm.computeResults());
+			final int[] threeSheets = countStyles(
+					dir.resolve("r13930.xlsx"));
+
+			assertEquals(twoSheets[0], threeSheets[0]);
+			assertEquals(twoSheets[1], threeSheets[1]);
+		} finally {
+			System.setOut(sysout);
+		}
+	}
+
+	/**
+	 * @return the number of styles and of fonts
+	 */
+	private static int[] countStyles(final Path xlsx) throws Exception {
+		try (Workbook wb = WorkbookFactory.create(xlsx.toFile())) {
+			return new int[] { wb.getNumCellStyles(),
+					wb.getNumberOfFonts() };
+		}
+	}
+
+}
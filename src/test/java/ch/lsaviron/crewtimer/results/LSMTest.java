@@ -1,14 +1,29 @@
 package ch.lsaviron.crewtimer.results;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
@@ -17,30 +32,178 @@ import ch.lsaviron.lsm.LsmEventCategory;
 class LSMTest {
 
 	@ParameterizedTest
-	@CsvSource("2023, src/main/data/r12944.csv, src/test/data/r12944-SCREEN.txt")
-	@CsvSource("2024, src/main/data/r13930.csv, src/test/data/r13930-SCREEN.txt")
+	@CsvSource("2023, src/main/data/r12944.csv, src/test/data/r12944-SCREEN.txt, COMMONS_CSV, 1")
+	@CsvSource("2024, src/main/data/r13930.csv, src/test/data/r13930-SCREEN.txt, COMMONS_CSV, 1")
+	@CsvSource("2023, src/main/data/r12944.csv, src/test/data/r12944-SCREEN.txt, MAPPED, 1")
+	@CsvSource("2024, src/main/data/r13930.csv, src/test/data/r13930-SCREEN.txt, MAPPED, 1")
+	@CsvSource("2023, src/main/data/r12944.csv, src/test/data/r12944-SCREEN.txt, COMMONS_CSV, 4")
+	@CsvSource("2024, src/main/data/r13930.csv, src/test/data/r13930-SCREEN.txt, COMMONS_CSV, 4")
 	final void testMain(final int year, final String inputCsv,
-			final String outputText) throws Exception {
+			final String outputText, final CsvEngine csvEngine,
+			final int parallelism) throws Exception {
 		final PrintStream sysout = System.out;
 		final PrintStream syserr = System.err;
-		LSM.setCurrentYear(year);
 
 		try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
 				PrintStream out = new PrintStream(baos);) {
 			System.setOut(out);
 			System.setErr(out);
 
-			LSM.main(inputCsv, "SCREEN");
+			LSM.main(inputCsv,
+					"SCREEN",
+					"--year=" + year,
+					"--csv-engine=" + csvEngine,
+					"--parallel=" + parallelism);
 			final byte[] output = baos.toByteArray();
 			assertEquals(Files.readString(Path.of(outputText)),
 					new String(output, StandardCharsets.UTF_8));
 		} finally {
 			System.setOut(sysout);
 			System.setErr(syserr);
-			LSM.resetCurrentYear();
 		}
 	}
 
+	@Test
+	final void testConcurrentRegattas() throws Exception {
+		final LSM lsm2023 = new LSM("src/main/data/r12944.csv",
+				PrintMode.SCREEN, new RegattaContext(2023));
+		final LSM lsm2024 = new LSM("src/main/data/r13930.csv",
+				PrintMode.SCREEN, new RegattaContext(2024));
+		final String expected2023 = lsm2023.computeResults().toString();
+		final String expected2024 = lsm2024.computeResults().toString();
+
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			final List<Future<String>> results2023 = new ArrayList<>();
+			final List<Future<String>> results2024 = new ArrayList<>();
+			for (int i = 0; i < 10; i++) {
+				results2023.add(executor
+						.submit(() -> lsm2023.computeResults().toString()));
+				results2024.add(executor
+						.submit(() -> lsm2024.computeResults().toString()));
+			}
+			for (final Future<String> result : results2023) {
+				assertEquals(expected2023, result.get());
+			}
+			for (final Future<String> result : results2024) {
+				assertEquals(expected2024, result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * The sheets prepared concurrently must be the same as the ones prepared
+	 * sequentially.
+	 */
+	@Test
+	final void testParallelSheets(@TempDir final Path dir) throws Exception {
+		final PrintStream sysout = System.out;
+		try (PrintStream out = new PrintStream(
+				OutputStream.nullOutputStream())) {
+			System.setOut(out);
+			final Map<String, byte[]> sequential = writeWorkbook(dir, 1);
+			final Map<String, byte[]> parallel = writeWorkbook(dir, 4);
+			assertEquals(sequential.keySet(), parallel.keySet());
+			for (final String entry : sequential.keySet()) {
+				assertArrayEquals(sequential.get(entry), parallel.get(entry),
+						entry);
+			}
+		} finally {
+			System.setOut(sysout);
+		}
+	}
+
+	/**
+	 * @return the content of the workbook entries (see
+	 *         {@link #readWorkbook(Path)})
+	 */
+	private static Map<String, byte[]> writeWorkbook(final Path dir,
+			final int parallelism) throws IOException {
+		final Path csv = dir.resolve("r13930-" + parallelism + ".csv");
+		Files.copy(Path.of("src/main/data/r13930.csv"), csv);
+		final LSM lsm = new LSM(csv.toString(), PrintMode.XLSX,
+				new RegattaContext(2024)).setParallelism(parallelism)
+				.setLeaderboard(5, HandicapFactors.loadDefault());
+		lsm.printResults(lsm.computeResults());
+		return readWorkbook(dir.resolve("r13930-" + parallelism + ".xlsx"));
+	}
+
+	/**
+	 * @return the content of the workbook entries, by name, except the
+	 *         document properties (creation date)
+	 */
+	private static Map<String, byte[]> readWorkbook(final Path xlsx)
+			throws IOException {
+		final Map<String, byte[]> res = new TreeMap<>();
+		try (ZipInputStream zis = new ZipInputStream(
+				Files.newInputStream(xlsx))) {
+			ZipEntry entry;
+			while ((entry = zis.getNextEntry()) != null) {
+				if (!entry.getName().startsWith("docProps/")) {
+					res.put(entry.getName(), zis.readAllBytes());
+				}
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Printing in several modes at once must give the same outputs as printing
+	 * in each mode.
+	 */
+	@Test
+	final void testSeveralModes(@TempDir final Path dir) throws Exception {
+		final PrintStream sysout = System.out;
+		final Path single = Files.createDirectory(dir.resolve("single"));
+		final Path several = Files.createDirectory(dir.resolve("several"));
+		for (final Path d : List.of(single, several)) {
+			Files.copy(Path.of("src/main/data/r13930.csv"),
+					d.resolve("r13930.csv"));
+		}
+		final String output;
+		try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				PrintStream out = new PrintStream(baos);) {
+			System.setOut(out);
+			LSM.main(single.resolve("r13930.csv").toString(), "XLSX",
+					"--year=2024");
+			baos.reset();
+			LSM.main(several.resolve("r13930.csv").toString(),
+					"SCREEN,XLS,XLSX",
+					"--year=2024");
+			output = baos.toString(StandardCharsets.UTF_8);
+		} finally {
+			System.setOut(sysout);
+		}
+		// without the lines of the Excel mode (font not installed, file)
+		assertEquals(
+				Files.readString(Path.of("src/test/data/r13930-SCREEN.txt")),
+				output.replaceAll(
+						"(Attention: police|Info: fichier sauvé) .*\\R",
+						""));
+
+		final Map<String, byte[]> expectedWorkbook = readWorkbook(
+				single.resolve("r13930.xlsx"));
+		final Map<String, byte[]> workbook = readWorkbook(
+				several.resolve("r13930.xlsx"));
+		assertEquals(expectedWorkbook.keySet(), workbook.keySet());
+		for (final String entry : expectedWorkbook.keySet()) {
+			assertArrayEquals(expectedWorkbook.get(entry), workbook.get(entry),
+					entry);
+		}
+		// written concurrently with the other workbook
+		assertTrue(Files.size(several.resolve("r13930.xls")) > 0);
+	}
+
+	@Test
+	final void testSameOutputFile() {
+		assertThrows(IllegalArgumentException.class,
+				() -> new LSM("src/main/data/r13930.csv",
+						List.of(PrintMode.XLSX, PrintMode.XLSX_STREAMING),
+						new RegattaContext(2024)));
+	}
+
 	@Test
 	final void testToStandardCategory() {
 		for (final LsmEventCategory lsmEventCategory : LsmEventCategory.EVENT_CATEGORIES) {
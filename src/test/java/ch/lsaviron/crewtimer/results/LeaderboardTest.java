@@ -0,0 +1,94 @@
+package ch.lsaviron.crewtimer.results;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import ch.lsaviron.lsm.LsmEventCategory;
+
+class LeaderboardTest {
+
+	@Test
+	final void testHandicapFactors() {
+		final Properties properties = new Properties();
+		properties.setProperty("age.MASTER", "0.9");
+		properties.setProperty("sex.WOMEN", "0.8");
+		properties.setProperty("rowers.1", "0.5");
+		final HandicapFactors factors = HandicapFactors.of(properties);
+
+		assertEquals(1, factors.getFactor(LsmEventCategory.parse("M C4x+")
+				.code()));
+		assertEquals(0.9 * 0.8 * 0.5, factors.getFactor(LsmEventCategory
+				.parse("Open MW C1x").code()), 1e-9);
+		// the Swiss championship does not change the factor
+		assertEquals(0.8 * 0.5,
+				factors.getFactor(LsmEventCategory.parse("W C1x*").code()),
+				1e-9);
+		assertEquals(1_800_000, factors.correct(2_000_000,
+				LsmEventCategory.parse("MM C4x+").code()));
+		assertEquals(RaceTimes.NO_TIME, factors.correct(RaceTimes.NO_TIME,
+				LsmEventCategory.parse("MM C4x+").code()));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "age.JUNIOR", "boat.C1x", "rowers.9", "sex" })
+	final void testUnknownHandicapFactor(final String key) {
+		final Properties properties = new Properties();
+		properties.setProperty(key, "0.9");
+		assertThrows(IllegalArgumentException.class,
+				() -> HandicapFactors.of(properties));
+	}
+
+	@Test
+	final void testCompute() throws Exception {
+		final ResultTable results = ResultTable.of(new LSM(
+				"src/main/data/r13930.csv", PrintMode.SCREEN,
+				new RegattaContext(2024)).computeResults());
+		final HandicapFactors factors = HandicapFactors.loadDefault();
+		final List<Leaderboard> leaderboards = Leaderboard.compute(results,
+				factors,
+				5);
+
+		// 5 races, then the day
+		assertEquals(6, leaderboards.size());
+		final Leaderboard day = leaderboards.get(5);
+		assertEquals("Classement général de la journée", day.getTitle());
+
+		// same as sorting all the corrected times
+		final List<int[]> all = new ArrayList<>();
+		for (int block = 0; block < results.getNbBlocks(); block++) {
+			if (results.getKey(block).category().swissChampionship()) {
+				continue;
+			}
+			for (int row = results.getBlockStart(block); row < results
+					.getBlockEnd(block); row++) {
+				final int corrected = factors.correct(
+						results.getAdjTimeMillis(row),
+						results.getCategoryCode(row));
+				if (corrected != RaceTimes.NO_TIME) {
+					all.add(new int[] { corrected, row });
+				}
+			}
+		}
+		all.sort(Comparator.<int[]>comparingInt(a -> a[0])
+				.thenComparingInt(a -> a[1]));
+		assertEquals(5, day.size());
+		for (int position = 0; position < day.size(); position++) {
+			assertEquals(all.get(position)[0],
+					day.getCorrectedMillis(position));
+			assertEquals(all.get(position)[1], day.getRow(position));
+			assertEquals(position + 1, day.getRank(position));
+		}
+		assertEquals(RaceTimes.NO_TIME, day.getGapMillis(0));
+		assertEquals(all.get(1)[0] - all.get(0)[0], day.getGapMillis(1));
+	}
+
+}
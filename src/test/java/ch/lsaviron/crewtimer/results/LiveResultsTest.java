@@ -0,0 +1,170 @@
+package ch.lsaviron.crewtimer.results;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LiveResultsTest {
+
+	private static final String INPUT_CSV = "src/main/data/r12944.csv";
+
+	private LSM lsm;
+
+	@BeforeEach
+	final void setUp() {
+		lsm = new LSM(INPUT_CSV, PrintMode.SCREEN, new RegattaContext(2023));
+	}
+
+	@Test
+	final void testRefresh() throws Exception {
+		final String csv = Files.readString(Path.of(INPUT_CSV));
+		final List<String> lines = csv.lines().toList();
+		final String firstLines = String.join("\n", lines.subList(0, 40))
+				+ "\n";
+		final LiveResults liveResults = new LiveResults(lsm);
+
+		// first lines and a partially written line
+		final String nextLine = lines.get(40);
+		SortedSet<EventCategoryKey> changedKeys = liveResults
+				.refresh(bytes(firstLines
+						+ nextLine.substring(0, nextLine.length() / 2)));
+		assertFalse(changedKeys.isEmpty());
+		assertEquals(process(firstLines).toString(),
+				liveResults.getResults().toString());
+
+		// same content: nothing changes
+		changedKeys = liveResults.refresh(bytes(firstLines));
+		assertTrue(changedKeys.isEmpty());
+
+		// whole file, without trailing line break
+		changedKeys = liveResults.refresh(bytes(csv));
+		assertFalse(changedKeys.isEmpty());
+		assertTrue(changedKeys.size() < process(csv).size());
+		assertEquals(process(csv).toString(),
+				liveResults.getResults().toString());
+	}
+
+	@Test
+	final void testCorrections() throws Exception {
+		final LSM lsm2024 = new LSM("src/main/data/r13930.csv",
+				PrintMode.SCREEN, new RegattaContext(2024));
+		final LiveResults liveResults = new LiveResults(lsm2024);
+		liveResults.refresh(
+				Files.readAllBytes(Path.of(lsm2024.resultsFromCrewTimerCsv)));
+		final int nbKeys = liveResults.getResults().size();
+
+		// Swiss championship category, also merged in the standard one
+		final EventCategoryKey swissKey = liveResults.getResults().keySet()
+				.stream()
+				.filter(k -> k.category().swissChampionship()
+						&& liveResults.getResults().get(k).size() >= 3)
+				.findFirst().orElseThrow();
+		final EventCategoryKey standardKey = swissKey
+				.withCategory(swissKey.category().withSwissChampionship(false));
+		final CategoryResult first = liveResults.getResults().get(swissKey)
+				.get(0);
+		assertEquals(1, first.categoryRank);
+
+		// penalty: the first becomes the last
+		SortedSet<EventCategoryKey> changedKeys = liveResults.addPenalty(
+				first.event,
+				first.crewAbbrev,
+				Duration.ofMinutes(30));
+		assertTrue(changedKeys.contains(swissKey));
+		assertTrue(changedKeys.contains(standardKey));
+		assertTrue(changedKeys.size() < nbKeys);
+		assertEquals(nbKeys, liveResults.getResults().size());
+		for (final EventCategoryKey key : List.of(swissKey, standardKey)) {
+			final List<CategoryResult> crs = liveResults.getResults().get(key);
+			final CategoryResult last = crs.get(crs.size() - 1);
+			assertEquals(first.crewAbbrev, last.crewAbbrev);
+			assertEquals(crs.size(), last.categoryRank);
+			assertEquals(first.adjTimeMillis + 30 * 60_000,
+					last.adjTimeMillis);
+			assertEquals(RaceTimes.NO_TIME, crs.get(0).deltaMillis);
+		}
+
+		// DNF: no more rank
+		changedKeys = liveResults.setStatus(first.event,
+				first.crewAbbrev,
+				"DNF");
+		assertTrue(changedKeys.contains(swissKey));
+		final List<CategoryResult> crs = liveResults.getResults()
+				.get(swissKey);
+		assertEquals("DNF", crs.get(crs.size() - 1).adjTime);
+		assertEquals(0, crs.get(crs.size() - 1).categoryRank);
+
+		// corrections are kept when the file is read again
+		changedKeys = liveResults.refresh(
+				Files.readAllBytes(Path.of(lsm2024.resultsFromCrewTimerCsv)));
+		assertTrue(changedKeys.isEmpty());
+
+		assertThrows(IllegalArgumentException.class,
+				() -> liveResults.setStatus(first.event, "unknown", "DNS"));
+	}
+
+	@Test
+	final void testSeveralCorrectionsInEvent() throws Exception {
+		final LiveResults liveResults = new LiveResults(lsm);
+		final byte[] csv = Files.readAllBytes(Path.of(INPUT_CSV));
+		liveResults.refresh(csv);
+		final EventCategoryKey key = liveResults.getResults().keySet().stream()
+				.filter(k -> liveResults.getResults().get(k).size() >= 2)
+				.findFirst().orElseThrow();
+		final CategoryResult first = liveResults.getResults().get(key).get(0);
+		final CategoryResult second = liveResults.getResults().get(key).get(1);
+
+		// two penalties on a crew, then one on another crew of the event
+		liveResults.addPenalty(first.event,
+				first.crewAbbrev,
+				Duration.ofMinutes(1));
+		liveResults.addPenalty(first.event,
+				first.crewAbbrev,
+				Duration.ofMinutes(1));
+		liveResults.addPenalty(second.event,
+				second.crewAbbrev,
+				Duration.ofSeconds(1));
+		assertEquals(first.adjTimeMillis + 120_000,
+				getAdjTimeMillis(liveResults, key, first.crewAbbrev));
+		assertEquals(second.adjTimeMillis + 1_000,
+				getAdjTimeMillis(liveResults, key, second.crewAbbrev));
+
+		// same results once the file is read again
+		final String results = liveResults.getResults().toString();
+		assertTrue(liveResults.refresh(csv).isEmpty());
+		assertEquals(results, liveResults.getResults().toString());
+	}
+
+	private static int getAdjTimeMillis(final LiveResults liveResults,
+			final EventCategoryKey key, final String crewAbbrev) {
+		return liveResults.getResults().get(key).stream()
+				.filter(cr -> cr.crewAbbrev.equals(crewAbbrev)).findFirst()
+				.orElseThrow().adjTimeMillis;
+	}
+
+	private SortedMap<EventCategoryKey, List<CategoryResult>> process(
+			final String csv) throws Exception {
+		final SortedMap<EventCategoryKey, List<CategoryResult>> results = lsm
+				.readRawResults(bytes(csv));
+		lsm.mergeSpecialCategories(results);
+		lsm.fixRankAndDelta(results);
+		return results;
+	}
+
+	private static byte[] bytes(final String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,107 @@
+package ch.lsaviron.crewtimer.results;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class PenaltyEngineTest {
+
+	@ParameterizedTest
+	@CsvSource({ "2024, 32:36.657, Faux-départ(120s), 34:36.657",
+			"2024, 32:20.768, Interférence(30s), 32:50.768",
+			"2024, 32:20.768, Interférence, 32:50.768",
+			"2024, 32:20.768, 'Faux-départ,Interférence', 34:50.768",
+			"2023, 45:59.4, 120xPénalité(120s), 47:59.400",
+			"2023, 45:59.4, , 45:59.400", "2023, 45:59.4, DQ, DQ",
+			"2023, , DNF, DNF" })
+	final void testComputeAdjTime(final int year, final String rawTime,
+			final String penaltyCode, final String expected) {
+		assertEquals(expected, new RegattaContext(year).getPenaltyEngine()
+				.computeAdjTime(rawTime, penaltyCode));
+	}
+
+	@ParameterizedTest
+	@CsvSource({ "2023, Interférence", "2024, Pénalité" })
+	final void testUnknownPenaltyCode(final int year,
+			final String penaltyCode) {
+		final PenaltyEngine penaltyEngine = new RegattaContext(year)
+				.getPenaltyEngine();
+		assertThrows(IllegalArgumentException.class,
+				() -> penaltyEngine.computeAdjTime("32:20.768", penaltyCode));
+	}
+
+	@ParameterizedTest
+	@CsvSource({ "2023", "2024" })
+	final void testNoRawTime(final int year) {
+		assertNull(new RegattaContext(year).getPenaltyEngine()
+				.computeAdjTime(null, "Faux-départ(120s)"));
+	}
+
+	/**
+	 * The adjusted times computed from the penalties must be the ones of
+	 * CrewTimer.
+	 */
+	@ParameterizedTest
+	@CsvSource({ "2022, src/main/data/r12208.csv",
+			"2023, src/main/data/r12944.csv",
+			"2024, src/main/data/r13930.csv" })
+	final void testSameAdjTimeAsCrewTimer(final int year,
+			final String inputCsv) throws Exception {
+		final PrintStream sysout = System.out;
+		try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				PrintStream out = new PrintStream(baos)) {
+			System.setOut(out);
+			new LSM(inputCsv, PrintMode.SCREEN, new RegattaContext(year))
+					.readRawResultsFromCsv();
+			final String output = baos.toString(StandardCharsets.UTF_8);
+			assertFalse(output.contains("temps brut"), output);
+		} finally {
+			System.setOut(sysout);
+		}
+	}
+
+	/**
+	 * A penalty code not known for the year keeps the adjusted time of
+	 * CrewTimer, with a warning.
+	 */
+	@Test
+	final void testUnknownPenaltyCodeInCsv() throws Exception {
+		final byte[] content = Files
+				.readString(Path.of("src/main/data/r13930.csv"))
+				.replace("Interférence(30s)", "Obstruction")
+				.getBytes(StandardCharsets.UTF_8);
+		final PrintStream sysout = System.out;
+		try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				PrintStream out = new PrintStream(baos, true,
+						StandardCharsets.UTF_8)) {
+			System.setOut(out);
+			final CategoryResult cr = new LSM("src/main/data/r13930.csv",
+					PrintMode.SCREEN, new RegattaContext(2024))
+					.readRawResults(content).values().stream()
+					.flatMap(List::stream)
+					.filter(r -> "Obstruction".equals(r.penaltyCode))
+					.findFirst().orElseThrow();
+			assertEquals("32:50.768", cr.adjTime);
+			final String output = baos.toString(StandardCharsets.UTF_8);
+			assertTrue(output.contains(
+					"Attention: pénalités 'Obstruction' de LSA 18 inconnues pour 2024"),
+					output);
+		} finally {
+			System.setOut(sysout);
+		}
+	}
+
+}
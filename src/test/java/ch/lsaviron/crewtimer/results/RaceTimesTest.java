@@ -0,0 +1,81 @@
+package ch.lsaviron.crewtimer.results;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class RaceTimesTest {
+
+	@ParameterizedTest
+	@CsvSource({ "34:35.4, 2075400", "30:46.098, 1846098", "00:13.8, 13800",
+			"5:03, 303000", "1:02:03.45, 3723450", "10:15:01.8, 36901800",
+			"10:45:46.098, 38746098" })
+	final void testParseMillis(final String time, final int expected) {
+		assertEquals(expected, RaceTimes.parseMillis(time));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "", "DQ", "12", "12:3", "123:45", "12:34.",
+			"12:34.1234", "12:34,5", "12:34:5" })
+	final void testParseMillisInvalid(final String time) {
+		assertThrows(IllegalArgumentException.class,
+				() -> RaceTimes.parseMillis(time));
+	}
+
+	@Test
+	final void testParseMillisOrNoTime() {
+		assertEquals(RaceTimes.NO_TIME, RaceTimes.parseMillisOrNoTime(null));
+		assertEquals(RaceTimes.NO_TIME, RaceTimes.parseMillisOrNoTime(" "));
+		assertEquals(RaceTimes.NO_TIME, RaceTimes.parseMillisOrNoTime("DNS"));
+		assertEquals(RaceTimes.NO_TIME, RaceTimes.parseMillisOrNoTime("DNF"));
+		assertEquals(13800, RaceTimes.parseMillisOrNoTime("00:13.8"));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "10:15:01.800", "17:15:59.400", "12:00",
+			"12:00:01", "00:00:00.001", "23:59:59.999" })
+	final void testFormatTimeOfDay(final String time) {
+		final LocalTime localTime = LocalTime.parse(time);
+		assertEquals(localTime.toString(), RaceTimes.formatTimeOfDay(
+				(int) (localTime.toNanoOfDay() / 1_000_000)));
+	}
+
+	@Test
+	final void testFormatDelta() {
+		assertEquals("01:14.4", RaceTimes.formatDelta(74_400));
+		assertEquals("00:44.0", RaceTimes.formatDelta(44_083));
+		// hours are not displayed
+		assertEquals("02:03.4", RaceTimes.formatDelta(3_723_450));
+		assertEquals("59:59.0", RaceTimes.formatDelta(-1_000));
+	}
+
+	@ParameterizedTest
+	@CsvSource({ "34:36.657", "00:13.800", "1:02:03.450", "10:00.005" })
+	final void testFormatDuration(final String duration) {
+		assertEquals(duration,
+				RaceTimes.formatDuration(RaceTimes.parseMillis(duration)));
+	}
+
+	@Test
+	final void testFormatSplit() {
+		assertEquals("07:45.6", RaceTimes.formatSplit(465_600));
+		assertEquals("00:12.2", RaceTimes.formatSplit(12_290));
+		assertEquals("1:02:03.4", RaceTimes.formatSplit(3_723_450));
+		assertEquals("-00:01.5", RaceTimes.formatSplit(-1_500));
+		assertEquals("", RaceTimes.formatSplit(RaceTimes.NO_TIME));
+	}
+
+	@Test
+	final void testPlus() {
+		assertEquals(38_746_098, RaceTimes.plus(36_900_000, 1_846_098));
+		assertEquals(1_000, RaceTimes.plus(RaceTimes.MILLIS_PER_DAY - 1_000,
+				2_000));
+	}
+
+}
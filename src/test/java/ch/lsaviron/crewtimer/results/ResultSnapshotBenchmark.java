@@ -0,0 +1,94 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares computing the ranked results from the CSV with loading their
+ * snapshot (see {@link ResultSnapshot}), the CSV being hashed in both cases.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultSnapshotBenchmark {
+
+	@Param({ "2023:src/main/data/r12944.csv",
+			"2024:src/main/data/r13930.csv" })
+	public String yearAndFile;
+
+	private Path dir;
+
+	private Path csv;
+
+	private RegattaContext context;
+
+	private LSM lsm;
+
+	private PrintStream sysout;
+
+	@Setup
+	public void setUp() throws IOException {
+		// the computation prints infos
+		sysout = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+		final String[] yearFile = yearAndFile.split(":", 2);
+		dir = Files.createTempDirectory("snapshot");
+		csv = dir.resolve(Path.of(yearFile[1]).getFileName());
+		Files.copy(Path.of(yearFile[1]), csv);
+		context = new RegattaContext(Integer.parseInt(yearFile[0]));
+		lsm = new LSM(csv.toString(), PrintMode.SCREEN, context);
+		lsm.computeResultTable();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		System.setOut(sysout);
+		Files.delete(ResultSnapshot.getPath(csv));
+		Files.delete(csv);
+		Files.delete(dir);
+	}
+
+	@Benchmark
+	public ResultTable compute() throws IOException {
+		ResultSnapshot.hash(Files.readAllBytes(csv));
+		return ResultTable.of(lsm.computeResults());
+	}
+
+	@Benchmark
+	public ResultTable load() throws IOException {
+		return ResultSnapshot.load(ResultSnapshot.getPath(csv),
+				ResultSnapshot.hash(Files.readAllBytes(csv)),
+				context);
+	}
+
+	public static void main(final String... args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(ResultSnapshotBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+
+}
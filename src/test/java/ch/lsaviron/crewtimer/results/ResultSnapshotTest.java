@@ -0,0 +1,181 @@
+package ch.lsaviron.crewtimer.results;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class ResultSnapshotTest {
+
+	@ParameterizedTest
+	@CsvSource("2023, src/main/data/r12944.csv")
+	@CsvSource("2024, src/main/data/r13930.csv")
+	final void testLoad(final int year, final String inputCsv,
+			@TempDir final Path dir) throws Exception {
+		final Path csv = dir.resolve("results.csv");
+		Files.copy(Path.of(inputCsv), csv);
+		final RegattaContext context = new RegattaContext(year);
+		final ResultTable expected = ResultTable.of(
+				new LSM(csv.toString(), PrintMode.SCREEN, context)
+						.computeResults());
+		final byte[] hash = ResultSnapshot.hash(Files.readAllBytes(csv));
+		final Path snapshot = ResultSnapshot.getPath(csv);
+		assertNull(ResultSnapshot.load(snapshot, hash, context));
+
+		ResultSnapshot.save(snapshot, hash, context, expected);
+		final ResultTable actual = ResultSnapshot.load(snapshot, hash,
+				context);
+		assertNotNull(actual);
+		assertEquals(expected.getNbBlocks(), actual.getNbBlocks());
+		assertEquals(expected.getLegs(), actual.getLegs());
+		for (int block = 0; block < expected.getNbBlocks(); block++) {
+			assertEquals(expected.getKey(block), actual.getKey(block));
+			assertEquals(expected.getBlockStart(block),
+					actual.getBlockStart(block));
+			assertEquals(expected.getBlockEnd(block),
+					actual.getBlockEnd(block));
+			for (int row = expected.getBlockStart(block); row < expected
+					.getBlockEnd(block); row++) {
+				assertEquals(expected.getEventRank(row),
+						actual.getEventRank(row));
+				assertEquals(expected.getCategoryRank(row),
+						actual.getCategoryRank(row));
+				assertEquals(expected.getCrew(row), actual.getCrew(row));
+				assertEquals(expected.getCrewAbbrev(row),
+						actual.getCrewAbbrev(row));
+				assertEquals(expected.getCategory(row),
+						actual.getCategory(row));
+				assertEquals(expected.getCategoryCode(row),
+						actual.getCategoryCode(row));
+				assertEquals(expected.getStart(row), actual.getStart(row));
+				assertEquals(expected.getStartMillis(row),
+						actual.getStartMillis(row));
+				assertEquals(expected.getFinishMillis(row),
+						actual.getFinishMillis(row));
+				assertEquals(expected.getAdjTime(row),
+						actual.getAdjTime(row));
+				assertEquals(expected.getAdjTimeMillis(row),
+						actual.getAdjTimeMillis(row));
+				assertEquals(expected.getDeltaMillis(row),
+						actual.getDeltaMillis(row));
+				for (int leg = 0; leg < expected.getLegs().size(); leg++) {
+					assertEquals(expected.getLegMillis(row, leg),
+							actual.getLegMillis(row, leg));
+					assertEquals(expected.getLegRank(row, leg),
+							actual.getLegRank(row, leg));
+					assertEquals(expected.getGapMillis(row, leg),
+							actual.getGapMillis(row, leg));
+				}
+			}
+		}
+
+		// another content or year: not used
+		final byte[] otherHash = ResultSnapshot
+				.hash("other".getBytes(StandardCharsets.UTF_8));
+		assertNull(ResultSnapshot.load(snapshot, otherHash, context));
+		assertNull(ResultSnapshot.load(snapshot, hash,
+				new RegattaContext(year + 1)));
+
+		// replaced once out of date
+		ResultSnapshot.save(snapshot, otherHash, context, expected);
+		assertNull(ResultSnapshot.load(snapshot, hash, context));
+		assertNotNull(ResultSnapshot.load(snapshot, otherHash, context));
+
+		// truncated in the header
+		Files.write(snapshot,
+				Arrays.copyOf(Files.readAllBytes(snapshot), 10));
+		assertNull(ResultSnapshot.load(snapshot, otherHash, context));
+	}
+
+	@Test
+	final void testOtherPenalties(@TempDir final Path dir) throws Exception {
+		final Path csv = dir.resolve("results.csv");
+		Files.copy(Path.of("src/main/data/r13930.csv"), csv);
+		final RegattaContext context = new RegattaContext(2024);
+		final byte[] hash = ResultSnapshot.hash(Files.readAllBytes(csv));
+		final Path snapshot = ResultSnapshot.getPath(csv);
+		ResultSnapshot.save(snapshot, hash, context, ResultTable.of(
+				new LSM(csv.toString(), PrintMode.SCREEN, context)
+						.computeResults()));
+		assertNotNull(ResultSnapshot.load(snapshot, hash,
+				new RegattaContext(2024)));
+
+		// same year, another penalty table: computed again
+		assertNull(ResultSnapshot.load(snapshot, hash,
+				new RegattaContext(2024,
+						Map.of("Faux-départ", 120, "Interférence", 60))));
+	}
+
+	@Test
+	final void testTruncated(@TempDir final Path dir) throws Exception {
+		final Path csv = dir.resolve("results.csv");
+		Files.copy(Path.of("src/main/data/r13930.csv"), csv);
+		final RegattaContext context = new RegattaContext(2024);
+		final PrintStream sysout = System.out;
+		try (PrintStream out = new PrintStream(
+				OutputStream.nullOutputStream())) {
+			System.setOut(out);
+			final LSM lsm = new LSM(csv.toString(), PrintMode.SCREEN, context)
+					.setCache(true);
+			final ResultTable computed = lsm.computeResultTable();
+			final Path snapshot = ResultSnapshot.getPath(csv);
+			final byte[] bytes = Files.readAllBytes(snapshot);
+			Files.write(snapshot, Arrays.copyOf(bytes,
+					bytes.length / 2));
+
+			// computed and written again
+			assertEquals(computed.getNbBlocks(),
+					lsm.computeResultTable().getNbBlocks());
+			assertEquals(bytes.length, Files.size(snapshot));
+		} finally {
+			System.setOut(sysout);
+		}
+	}
+
+	@Test
+	final void testWarningsReportedAgain(@TempDir final Path dir)
+			throws Exception {
+		final Path csv = dir.resolve("results.csv");
+		Files.writeString(csv,
+				Files.readString(Path.of("src/main/data/r13930.csv"))
+						.replace("Interférence(30s)", "Obstruction"));
+		final LSM lsm = new LSM(csv.toString(), PrintMode.SCREEN,
+				new RegattaContext(2024)).setCache(true);
+		final String warning = "Attention: pénalités 'Obstruction' de LSA 18 inconnues pour 2024";
+		final PrintStream sysout = System.out;
+		try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				PrintStream out = new PrintStream(baos, true,
+						StandardCharsets.UTF_8)) {
+			System.setOut(out);
+			lsm.computeResultTable();
+			final String computed = baos.toString(StandardCharsets.UTF_8);
+			assertTrue(computed.contains(warning), computed);
+			baos.reset();
+
+			// from the snapshot: same messages
+			lsm.computeResultTable();
+			final String loaded = baos.toString(StandardCharsets.UTF_8);
+			assertTrue(loaded.startsWith("Info: résultats lus depuis "),
+					loaded);
+			assertEquals(computed,
+					loaded.substring(loaded.indexOf('\n') + 1));
+		} finally {
+			System.setOut(sysout);
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+package ch.lsaviron.crewtimer.results;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+class ResultTableTest {
+
+	@Test
+	final void testOf() throws Exception {
+		final SortedMap<EventCategoryKey, List<CategoryResult>> results = new LSM(
+				"src/main/data/r13930.csv", PrintMode.SCREEN,
+				new RegattaContext(2024)).computeResults();
+		final ResultTable table = ResultTable.of(results);
+
+		assertEquals(results.size(), table.getNbBlocks());
+		int block = 0;
+		for (final Entry<EventCategoryKey, List<CategoryResult>> entry : results
+				.entrySet()) {
+			assertEquals(entry.getKey(), table.getKey(block));
+			assertEquals(entry.getValue().size(), table.getBlockSize(block));
+			int row = table.getBlockStart(block);
+			for (final CategoryResult cr : entry.getValue()) {
+				assertEquals(cr.crew, table.getCrew(row));
+				assertEquals(cr.crewAbbrev, table.getCrewAbbrev(row));
+				assertEquals(cr.category, table.getCategory(row));
+				assertEquals(cr.start, table.getStart(row));
+				assertEquals(cr.adjTime, table.getAdjTime(row));
+				assertEquals(cr.categoryRank.intValue(),
+						table.getCategoryRank(row));
+				assertEquals(cr.finishMillis, table.getFinishMillis(row));
+				assertEquals(cr.deltaMillis, table.getDeltaMillis(row));
+				row++;
+			}
+			block++;
+		}
+	}
+
+	@Test
+	final void testFilter() throws Exception {
+		final SortedMap<EventCategoryKey, List<CategoryResult>> results = new LSM(
+				"src/main/data/r13930.csv", PrintMode.SCREEN,
+				new RegattaContext(2024)).computeResults();
+		final ResultTable table = ResultTable.of(results);
+		final ResultTable swiss = table
+				.filter(k -> k.category().swissChampionship());
+
+		final List<EventCategoryKey> expectedKeys = results.keySet().stream()
+				.filter(k -> k.category().swissChampionship())
+				.toList();
+		assertEquals(expectedKeys.size(), swiss.getNbBlocks());
+		for (int block = 0; block < swiss.getNbBlocks(); block++) {
+			final EventCategoryKey key = swiss.getKey(block);
+			assertEquals(expectedKeys.get(block), key);
+			final int firstRow = swiss.getBlockStart(block);
+			assertEquals(results.get(key).get(0).crew,
+					swiss.getCrew(firstRow));
+		}
+	}
+
+	@Test
+	final void testBuilder() throws Exception {
+		final SortedMap<EventCategoryKey, List<CategoryResult>> results = new LSM(
+				"src/main/data/r12944.csv", PrintMode.SCREEN,
+				new RegattaContext(2023)).computeResults();
+		final ResultTable.Builder builder = new ResultTable.Builder();
+		// order of the puts does not matter
+		results.reversed().forEach(builder::put);
+		assertSameTable(ResultTable.of(results), builder.build());
+
+		// replace a block and remove another one
+		final SortedMap<EventCategoryKey, List<CategoryResult>> changed = new TreeMap<>(
+				results);
+		final EventCategoryKey first = changed.firstKey();
+		changed.put(first, changed.get(first).subList(0, 1));
+		builder.put(first, changed.get(first));
+		final EventCategoryKey last = changed.lastKey();
+		changed.remove(last);
+		builder.remove(last);
+		assertSameTable(ResultTable.of(changed), builder.build());
+	}
+
+	private static void assertSameTable(final ResultTable expected,
+			final ResultTable actual) {
+		assertEquals(expected.getNbBlocks(), actual.getNbBlocks());
+		assertEquals(expected.getLegs(), actual.getLegs());
+		for (int block = 0; block < expected.getNbBlocks(); block++) {
+			assertEquals(expected.getKey(block), actual.getKey(block));
+			assertEquals(expected.getBlockStart(block),
+					actual.getBlockStart(block));
+			assertEquals(expected.getBlockEnd(block),
+					actual.getBlockEnd(block));
+		}
+		final int nbRows = expected.getNbBlocks() == 0 ? 0
+				: expected.getBlockEnd(expected.getNbBlocks() - 1);
+		for (int row = 0; row < nbRows; row++) {
+			assertEquals(expected.getCrew(row), actual.getCrew(row));
+			assertEquals(expected.getCrewAbbrev(row), actual.getCrewAbbrev(row));
+			assertEquals(expected.getCategory(row), actual.getCategory(row));
+			assertEquals(expected.getCategoryCode(row),
+					actual.getCategoryCode(row));
+			assertEquals(expected.getStart(row), actual.getStart(row));
+			assertEquals(expected.getAdjTime(row), actual.getAdjTime(row));
+			assertEquals(expected.getEventRank(row), actual.getEventRank(row));
+			assertEquals(expected.getCategoryRank(row),
+					actual.getCategoryRank(row));
+			assertEquals(expected.getDeltaMillis(row),
+					actual.getDeltaMillis(row));
+			for (int leg = 0; leg < expected.getLegs().size(); leg++) {
+				assertEquals(expected.getLegMillis(row, leg),
+						actual.getLegMillis(row, leg));
+				assertEquals(expected.getLegRank(row, leg),
+						actual.getLegRank(row, leg));
+				assertEquals(expected.getGapMillis(row, leg),
+						actual.getGapMillis(row, leg));
+			}
+		}
+	}
+
+}
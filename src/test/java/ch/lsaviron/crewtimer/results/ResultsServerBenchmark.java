@@ -0,0 +1,132 @@
+package ch.lsaviron.crewtimer.results;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Load test of the events of {@link ResultsServer}: time for a category update
+ * to reach all the local subscribers, each one read by a virtual thread.
+ * <p>
+ * Each subscriber uses two file descriptors: the limit of open files (e.g.
+ * {@code ulimit -n}) must be high enough.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultsServerBenchmark {
+
+	@Param({ "100", "5000" })
+	public int nbSubscribers;
+
+	private ResultsServer server;
+
+	private ResultTable results;
+
+	private Set<EventCategoryKey> changedKeys;
+
+	private final List<Socket> sockets = new ArrayList<>();
+
+	private ExecutorService clients;
+
+	/** Counted down by each subscriber receiving the pending update. */
+	private volatile CountDownLatch received;
+
+	@Setup
+	public void setUp() throws Exception {
+		final LSM lsm = new LSM("src/main/data/r13930.csv", PrintMode.SCREEN,
+				new RegattaContext(2024));
+		results = ResultTable.of(lsm.computeResults());
+		changedKeys = Set.of(results.getKey(0));
+		server = new ResultsServer(lsm);
+		server.start(0);
+		server.update(results, Set.of());
+
+		clients = Executors.newVirtualThreadPerTaskExecutor();
+		for (int i = 0; i < nbSubscribers; i++) {
+			final Socket socket = new Socket("localhost", server.getPort());
+			sockets.add(socket);
+			final OutputStream out = socket.getOutputStream();
+			out.write("GET /events HTTP/1.1\r\nHost: localhost\r\n\r\n"
+					.getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+			clients.submit(() -> read(socket));
+		}
+		while (server.getNbSubscribers() < nbSubscribers) {
+			Thread.sleep(10);
+		}
+	}
+
+	private Void read(final Socket socket) throws IOException {
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(
+				socket.getInputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				// chunk sizes are read as lines too
+				if (line.startsWith("data: ")) {
+					received.countDown();
+				}
+			}
+		}
+		return null;
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		server.stop();
+		for (final Socket socket : sockets) {
+			socket.close();
+		}
+		clients.close();
+	}
+
+	@Benchmark
+	public void push() throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(nbSubscribers);
+		received = latch;
+		server.update(results, changedKeys);
+		if (!latch.await(1, TimeUnit.MINUTES)) {
+			throw new IllegalStateException(
+					latch.getCount() + " subscribers not reached");
+		}
+		if (server.getNbSubscribers() < nbSubscribers) {
+			throw new IllegalStateException("Subscribers dropped");
+		}
+	}
+
+	public static void main(final String... args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(ResultsServerBenchmark.class.getSimpleName()).build())
+				.run();
+	}
+
+}
@@ -0,0 +1,176 @@
+package ch.lsaviron.crewtimer.results;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.SortedSet;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ch.lsaviron.crewtimer.results.EventId.Race;
+
+class ResultsServerTest {
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	private LiveResults liveResults;
+
+	private ResultsServer server;
+
+	@BeforeEach
+	final void setUp() throws Exception {
+		final LSM lsm = new LSM("src/main/data/r13930.csv", PrintMode.SCREEN,
+				new RegattaContext(2024));
+		liveResults = new LiveResults(lsm);
+		server = new ResultsServer(lsm);
+		server.start(0);
+		server.update(liveResults, liveResults.refresh());
+	}
+
+	@AfterEach
+	final void tearDown() {
+		server.stop();
+	}
+
+	private HttpResponse<String> get(final String path, final String etag)
+			throws Exception {
+		final HttpRequest.Builder request = HttpRequest.newBuilder(
+				URI.create("http://localhost:" + server.getPort() + path));
+		if (etag != null) {
+			request.header("If-None-Match", etag);
+		}
+		return client.send(request.build(), BodyHandlers.ofString());
+	}
+
+	@Test
+	final void testViews() throws Exception {
+		final HttpResponse<String> index = get("/", null);
+		assertEquals(200, index.statusCode());
+		assertTrue(index.body().contains("<a href=\"/race/LAMANTIN\">"));
+
+		final EventCategoryKey key = liveResults.getResults().firstKey();
+		assertTrue(ResultsServer.getPath(key)
+				.startsWith("/category/LAMANTIN/1/"));
+		final HttpResponse<String> html = get(ResultsServer.getPath(key),
+				null);
+		assertEquals(200, html.statusCode());
+		assertTrue(html.body().contains("U19W C4x+ (course 🦭 1, 10h15)"));
+		assertEquals("text/html; charset=utf-8",
+				html.headers().firstValue("Content-Type").orElseThrow());
+
+		final HttpResponse<String> json = get(
+				ResultsServer.getPath(key) + ".json", null);
+		assertEquals(200, json.statusCode());
+		assertTrue(json.body().startsWith(
+				"[{\"header\":\"U19W C4x+ (course 🦭 1, 10h15)\",\"legs\":[],\"rows\":[{\"rank\":1,\"medals\":\"🥇\""));
+
+		final HttpResponse<String> race = get("/race/LAMANTIN.json", null);
+		assertEquals(200, race.statusCode());
+		assertTrue(race.body().startsWith(json.body().substring(0,
+				json.body().length() - 1)));
+
+		assertEquals(404, get("/race/UNKNOWN", null).statusCode());
+		assertEquals(404, get("/category/999/1", null).statusCode());
+		assertEquals(404,
+				get("/category/LAMANTIN/999/1", null).statusCode());
+		assertEquals(404, get("/category/UNKNOWN/1/1", null).statusCode());
+		assertEquals(404, get("/favicon.ico", null).statusCode());
+	}
+
+	@Test
+	final void testCategoryViewOfRace() {
+		// event ids may restart for each race (e.g. in 2023)
+		final EventCategoryKey key = liveResults.getResults().firstKey();
+		final EventCategoryKey otherRace = new EventCategoryKey(
+				new EventId(Race.ECREVISSE.getEmoji(), key.event().id(),
+						Race.ECREVISSE),
+				key.rawCategory());
+		final ResultsServer.View view = ResultsServer.View
+				.parse(ResultsServer.getPath(key));
+		assertTrue(view.filter().test(key));
+		assertFalse(view.filter().test(otherRace));
+		assertFalse(view.dependsOn(otherRace));
+
+		final EventCategoryKey noRace = new EventCategoryKey(
+				new EventId(null, 1, null), key.rawCategory());
+		assertEquals("/category/-/1/" + key.category().code(),
+				ResultsServer.getPath(noRace));
+		assertTrue(ResultsServer.View.parse(ResultsServer.getPath(noRace))
+				.filter().test(noRace));
+	}
+
+	@Test
+	final void testETag() throws Exception {
+		final EventCategoryKey first = liveResults.getResults().firstKey();
+		final EventCategoryKey last = liveResults.getResults().lastKey();
+		final String firstPath = ResultsServer.getPath(first);
+		final String lastPath = ResultsServer.getPath(last);
+
+		final String firstEtag = get(firstPath, null).headers()
+				.firstValue("ETag").orElseThrow();
+		final String lastEtag = get(lastPath, null).headers()
+				.firstValue("ETag").orElseThrow();
+		assertEquals(304, get(firstPath, firstEtag).statusCode());
+		assertEquals(200, get(firstPath, lastEtag).statusCode());
+
+		// penalty on the winner of the first category: only its views change
+		final String crewAbbrev = liveResults.getResults().get(first)
+				.get(0).crewAbbrev;
+		final SortedSet<EventCategoryKey> changedKeys = liveResults
+				.addPenalty(first.event(), crewAbbrev, Duration.ofMinutes(5));
+		assertTrue(changedKeys.contains(first));
+		assertFalse(changedKeys.contains(last));
+		server.update(liveResults, changedKeys);
+
+		final HttpResponse<String> changed = get(firstPath, firstEtag);
+		assertEquals(200, changed.statusCode());
+		assertNotEquals(firstEtag,
+				changed.headers().firstValue("ETag").orElseThrow());
+		assertEquals(304, get(lastPath, lastEtag).statusCode());
+	}
+
+	@Test
+	final void testEvents() throws Exception {
+		final HttpResponse<Stream<String>> events = client.send(
+				HttpRequest.newBuilder(URI.create("http://localhost:"
+						+ server.getPort() + "/events")).build(),
+				BodyHandlers.ofLines());
+		assertEquals("text/event-stream; charset=utf-8",
+				events.headers().firstValue("Content-Type").orElseThrow());
+		assertEquals(1, server.getNbSubscribers());
+
+		final EventCategoryKey first = liveResults.getResults().firstKey();
+		final String crewAbbrev = liveResults.getResults().get(first)
+				.get(0).crewAbbrev;
+		final SortedSet<EventCategoryKey> changedKeys = liveResults
+				.addPenalty(first.event(), crewAbbrev, Duration.ofMinutes(5));
+		server.update(liveResults, changedKeys);
+
+		final Iterator<String> lines = events.body().iterator();
+		String data = null;
+		while (data == null) {
+			final String line = lines.next();
+			if (line.startsWith("data: ")) {
+				data = line.substring("data: ".length());
+			}
+		}
+		assertTrue(data.startsWith("{\"path\":\"" + ResultsServer.getPath(first)
+				+ "\",\"races\":[{\"header\":\"U19W C4x+ (course 🦭 1, 10h15)\",\"rows\":[{\"rank\":1,\"medals\":\"🥇\",\"crewAbbrev\":"),
+				data);
+		assertFalse(data.contains(crewAbbrev + "\",\"delta\":null"), data);
+		events.body().close();
+	}
+
+}
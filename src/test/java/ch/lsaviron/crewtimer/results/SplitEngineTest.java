@@ -0,0 +1,93 @@
+package ch.lsaviron.crewtimer.results;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SplitEngineTest {
+
+	private static final int NO = RaceTimes.NO_TIME;
+
+	@Test
+	final void testComputeCategory() {
+		// 2 legs, the first row belonging to another category
+		final int[] passingMillis = { 1, 1, //
+				400_000, 1_000_000, //
+				420_000, 990_000, //
+				400_000, 1_100_000, //
+				NO, 1_200_000, //
+				NO, NO };
+		final int[] legMillis = new int[passingMillis.length];
+		final int[] legRanks = new int[passingMillis.length];
+		final int[] gapMillis = new int[passingMillis.length];
+		SplitEngine.computeCategory(2,
+				1,
+				6,
+				passingMillis,
+				legMillis,
+				legRanks,
+				gapMillis);
+
+		assertArrayEquals(new int[] { 0, 0, //
+				400_000, 600_000, //
+				420_000, 570_000, //
+				400_000, 700_000, //
+				NO, NO, //
+				NO, NO }, legMillis);
+		// equal times share the same rank
+		assertArrayEquals(new int[] { 0, 0, //
+				1, 2, //
+				3, 1, //
+				1, 3, //
+				0, 0, //
+				0, 0 }, legRanks);
+		assertArrayEquals(new int[] { 0, 0, //
+				0, 10_000, //
+				20_000, 0, //
+				0, 110_000, //
+				NO, 210_000, //
+				NO, NO }, gapMillis);
+	}
+
+	@Test
+	final void testFormat() {
+		assertEquals("07:45.6 (1)", SplitEngine.format(465_600, 1, 0));
+		assertEquals("07:57.8 (2) +00:12.2",
+				SplitEngine.format(477_800, 2, 12_200));
+		assertEquals("", SplitEngine.format(NO, 0, 12_200));
+	}
+
+	@Test
+	final void testResultTable() throws Exception {
+		final ResultTable table = ResultTable.of(new LSM(
+				"src/main/data/r12944.csv", PrintMode.SCREEN,
+				new RegattaContext(2023)).computeResults());
+		assertEquals(List.of("Bouée_A", "Bouée_C", SplitEngine.FINISH),
+				table.getLegs());
+		// U19W C4x+: LSA 1, then RCL 1
+		final int first = table.getBlockStart(0);
+		assertEquals("LSA 1", table.getCrewAbbrev(first));
+		assertEquals(RaceTimes.parseMillis("34:35.4"),
+				table.getLegMillis(first, 0) + table.getLegMillis(first, 1)
+						+ table.getLegMillis(first, 2));
+		assertEquals("09:01.9 (1)",
+				SplitEngine.format(table.getLegMillis(first, 1),
+						table.getLegRank(first, 1),
+						table.getGapMillis(first, 1)));
+		final int second = first + 1;
+		assertEquals(2, table.getLegRank(second, 0));
+		assertEquals(12_200, table.getGapMillis(second, 0));
+		// the gap at finish is the delta
+		assertEquals(table.getDeltaMillis(second),
+				table.getGapMillis(second, 2));
+
+		final ResultTable noSplits = ResultTable.of(new LSM(
+				"src/main/data/r13930.csv", PrintMode.SCREEN,
+				new RegattaContext(2024)).computeResults());
+		assertEquals(List.of(), noSplits.getLegs());
+	}
+
+}
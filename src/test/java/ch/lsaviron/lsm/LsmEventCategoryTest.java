@@ -1,8 +1,11 @@
 package ch.lsaviron.lsm;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.Comparator;
+
 import org.junit.jupiter.api.Test;
 
 import ch.lsaviron.swissrowing.AgeCategory;
@@ -67,4 +70,55 @@ class LsmEventCategoryTest {
 		assertEquals("Mix 2", LsmEventCategory.parse("Mix 2-").toString());
 	}
 
+	@Test
+	final void testParseCanonical() {
+		final LsmEventCategory eventCategory = LsmEventCategory
+				.parse("M C1x*");
+		assertSame(eventCategory, LsmEventCategory.parse("M C1x*"));
+		assertSame(eventCategory, LsmEventCategory.parse("M C1X*"));
+		assertSame(LsmEventCategory.parse("M C1x"),
+				eventCategory.withSwissChampionship(false));
+		assertSame(LsmEventCategory.parse("Open M C2x"), LsmEventCategory
+				.parse("Open MM C2x").withAgeCategory(AgeCategory.SENIOR));
+	}
+
+	@Test
+	final void testCode() {
+		for (final LsmEventCategory eventCategory : LsmEventCategory.EVENT_CATEGORIES) {
+			assertSame(eventCategory,
+					LsmEventCategory.fromCode(eventCategory.code()));
+		}
+	}
+
+	@Test
+	final void testCompareByExpectedSpeed() {
+		final Comparator<LsmEventCategory> expected = Comparator
+				.comparing(LsmEventCategory::eventCategory,
+						Comparator.comparing(EventCategory::rowers).reversed()
+								.thenComparing(EventCategory::sex))
+				.thenComparing(LsmEventCategory::swissChampionship,
+						Comparator.reverseOrder());
+		for (final LsmEventCategory a : LsmEventCategory.EVENT_CATEGORIES) {
+			for (final LsmEventCategory b : LsmEventCategory.EVENT_CATEGORIES) {
+				assertEquals(Integer.signum(expected.compare(a, b)),
+						Integer.signum(LsmEventCategory.EXPECTED_SPEED_COMPARATOR
+								.compare(a, b)),
+						a + " vs " + b);
+			}
+		}
+	}
+
+	@Test
+	final void testNameOrder() {
+		for (final LsmEventCategory a : LsmEventCategory.EVENT_CATEGORIES) {
+			for (final LsmEventCategory b : LsmEventCategory.EVENT_CATEGORIES) {
+				assertEquals(
+						Integer.signum(a.toString().compareTo(b.toString())),
+						Integer.signum(
+								Integer.compare(a.nameOrder(), b.nameOrder())),
+						a + " vs " + b);
+			}
+		}
+	}
+
 }
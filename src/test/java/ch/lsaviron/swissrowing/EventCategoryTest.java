@@ -3,8 +3,12 @@ package ch.lsaviron.swissrowing;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.Comparator;
+
 import org.junit.jupiter.api.Test;
 
+import ch.lsaviron.lsm.LsmEventCategory;
+
 class EventCategoryTest {
 
 	@Test
@@ -46,4 +50,35 @@ class EventCategoryTest {
 		assertEquals("Mix 2", EventCategory.parse("Mix 2-").toString());
 	}
 
+	@Test
+	final void testCode() {
+		for (final LsmEventCategory lsmEventCategory : LsmEventCategory.EVENT_CATEGORIES) {
+			final EventCategory eventCategory = lsmEventCategory
+					.eventCategory();
+			final int code = eventCategory.code();
+			assertEquals(0, code >>> EventCategory.CODE_BITS);
+			assertEquals(eventCategory, EventCategory.fromCode(code));
+		}
+		final EventCategory m8 = EventCategory.parse("MM 8+");
+		assertEquals(m8.code() & EventCategory.SEX_MASK,
+				EventCategory.parse("M C1x").code() & EventCategory.SEX_MASK);
+	}
+
+	@Test
+	final void testCompareByExpectedSpeed() {
+		final Comparator<EventCategory> expected = Comparator
+				.comparing(EventCategory::rowers).reversed()
+				.thenComparing(EventCategory::sex);
+		for (final LsmEventCategory a : LsmEventCategory.EVENT_CATEGORIES) {
+			for (final LsmEventCategory b : LsmEventCategory.EVENT_CATEGORIES) {
+				assertEquals(
+						Integer.signum(expected.compare(a.eventCategory(),
+								b.eventCategory())),
+						Integer.signum(EventCategory.BY_EXPECTED_SPEED_COMPARATOR
+								.compare(a.eventCategory(), b.eventCategory())),
+						a + " vs " + b);
+			}
+		}
+	}
+
 }